@@ -4,6 +4,7 @@ import checkers.CheckersProperties;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
 import game.moves.Move;
+import game.utility.BoardGeometry;
 import game.utility.Location;
 import game.utility.Properties.PlayerColor;
 import game.utility.Properties.Direction;
@@ -36,6 +37,19 @@ public abstract class CheckerMove extends Move implements Serializable {
         return next;
     }
     
+    /**
+     * takes back this Move and every chained Move after it (captures, upgrades),
+     * in reverse order of committing
+     * @param boardState state of the board to which this Move was last committed
+     */
+    @Override
+    public void undoMove(BoardState boardState)
+    {
+        if (next != null)
+            next.undoMove(boardState);
+        super.undoMove(boardState);
+    }
+    
     public static List<CheckerMove> getValidMoves(Location location, Set<Direction> directions, BoardState boardState)
     {
         List<CheckerMove> validMoves = new ArrayList<>();
@@ -57,17 +71,17 @@ public abstract class CheckerMove extends Move implements Serializable {
         
         if (directions.contains(UP))
         {
-            Location upLeft = Location.upLeft(location);
+            Location upLeft = BoardGeometry.getNeighbour(location,BoardGeometry.UP_LEFT);
             if (upLeft != null) moveLocations.add(upLeft);
-            Location upRight = Location.upRight(location);
+            Location upRight = BoardGeometry.getNeighbour(location,BoardGeometry.UP_RIGHT);
             if (upRight != null) moveLocations.add(upRight);
         }
         
         if (directions.contains(DOWN))
         {
-            Location downLeft = Location.downLeft(location);
+            Location downLeft = BoardGeometry.getNeighbour(location,BoardGeometry.DOWN_LEFT);
             if (downLeft != null) moveLocations.add(downLeft);
-            Location downRight = Location.downRight(location);
+            Location downRight = BoardGeometry.getNeighbour(location,BoardGeometry.DOWN_RIGHT);
             if (downRight != null) moveLocations.add(downRight);
         }
         
@@ -110,47 +124,41 @@ public abstract class CheckerMove extends Move implements Serializable {
         if (directions.contains(UP))
         {
             Location tempFrom     = Location.copy(location);
-            Location tempOpponent = Location.upLeft(location);
-            Location tempTo       = Location.upLeft2(location);
-            PieceCapture tempCapture = new PieceCapture(tempFrom,tempOpponent,tempTo);
-            tempCaptures.add(tempCapture);
+            Location tempOpponent = BoardGeometry.getNeighbour(location,BoardGeometry.UP_LEFT);
+            Location tempTo       = BoardGeometry.getJump(location,BoardGeometry.UP_LEFT);
+            if (tempTo != null) tempCaptures.add(new PieceCapture(tempFrom,tempOpponent,tempTo));
         }
         
         if (directions.contains(UP))
         {
             Location tempFrom     = Location.copy(location);
-            Location tempOpponent = Location.upRight(location);
-            Location tempTo       = Location.upRight2(location);
-            PieceCapture tempCapture = new PieceCapture(tempFrom,tempOpponent,tempTo);
-            tempCaptures.add(tempCapture);
+            Location tempOpponent = BoardGeometry.getNeighbour(location,BoardGeometry.UP_RIGHT);
+            Location tempTo       = BoardGeometry.getJump(location,BoardGeometry.UP_RIGHT);
+            if (tempTo != null) tempCaptures.add(new PieceCapture(tempFrom,tempOpponent,tempTo));
         }
         
         if (directions.contains(DOWN))
         {
             Location tempFrom     = Location.copy(location);
-            Location tempOpponent = Location.downLeft(location);
-            Location tempTo       = Location.downLeft2(location);
-            PieceCapture tempCapture = new PieceCapture(tempFrom,tempOpponent,tempTo);
-            tempCaptures.add(tempCapture);
+            Location tempOpponent = BoardGeometry.getNeighbour(location,BoardGeometry.DOWN_LEFT);
+            Location tempTo       = BoardGeometry.getJump(location,BoardGeometry.DOWN_LEFT);
+            if (tempTo != null) tempCaptures.add(new PieceCapture(tempFrom,tempOpponent,tempTo));
         }
         
         if (directions.contains(DOWN))
         {
             Location tempFrom     = Location.copy(location);
-            Location tempOpponent = Location.downRight(location);
-            Location tempTo       = Location.downRight2(location);
-            PieceCapture tempCapture = new PieceCapture(tempFrom,tempOpponent,tempTo);
-            tempCaptures.add(tempCapture);
+            Location tempOpponent = BoardGeometry.getNeighbour(location,BoardGeometry.DOWN_RIGHT);
+            Location tempTo       = BoardGeometry.getJump(location,BoardGeometry.DOWN_RIGHT);
+            if (tempTo != null) tempCaptures.add(new PieceCapture(tempFrom,tempOpponent,tempTo));
         }
         
         for (PieceCapture tempCapture : tempCaptures)
         {
             PieceCapture newCapture = tempCapture.getCopy();
-            BoardState newBoardState = BoardState.copy(boardState);
-            
-            if (newCapture.validateMove(newBoardState))
+            if (newCapture.validateMove(boardState))
             {
-                newCapture.commitMove(newBoardState);
+                newCapture.commitMove(boardState);
                 PieceCapture copyCapture = newCapture.getCopy();
                 Location newLocation = newCapture.getToLocation();
                 PieceUpgrade newUpgrade = null;
@@ -158,7 +166,7 @@ public abstract class CheckerMove extends Move implements Serializable {
                 if (Location.getRow(newLocation) == upgradeRow)
                 {
                     newUpgrade = new PieceUpgrade(newLocation);
-                    newUpgrade.commitMove(newBoardState);
+                    newUpgrade.commitMove(boardState);
                     PieceUpgrade copyUpgrade = newUpgrade.getCopy();
                     copyCapture.setNext(copyUpgrade);
                 }
@@ -167,7 +175,7 @@ public abstract class CheckerMove extends Move implements Serializable {
                 Set<Direction> newDirections = new HashSet<>();
                 newDirections.add(UP);
                 newDirections.add(DOWN);
-                List<CheckerMove> nextCaptures = getValidCaptures(newLocation,newDirections,newBoardState);
+                List<CheckerMove> nextCaptures = getValidCaptures(newLocation,newDirections,boardState);
 
                 for (CheckerMove nextCapture : nextCaptures)
                 {
@@ -186,6 +194,11 @@ public abstract class CheckerMove extends Move implements Serializable {
                         validCaptures.add(copyNewCapture);
                     }
                 }
+                
+                // take back the hop (and upgrade) explored on this board state
+                if (newUpgrade != null)
+                    newUpgrade.undoMove(boardState);
+                newCapture.undoMove(boardState);
             }
         }
         
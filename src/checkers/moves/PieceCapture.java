@@ -2,6 +2,7 @@ package checkers.moves;
 
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import game.utility.Properties.PlayerColor;
 import java.io.Serializable;
@@ -88,6 +89,11 @@ public class PieceCapture extends CheckerMove implements Serializable {
     @Override
     public void commitMove(BoardState boardState)
     {
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,from);
+        undoRecord.save(boardState,opponent);
+        undoRecord.save(boardState,to);
+        
         Piece piece = boardState.getPiece(from);
         boardState.removePiece(from);
         boardState.removePiece(opponent);
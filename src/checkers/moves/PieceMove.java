@@ -2,6 +2,7 @@ package checkers.moves;
 
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import java.io.Serializable;
 
@@ -59,6 +60,10 @@ public class PieceMove extends CheckerMove implements Serializable {
     @Override
     public void commitMove(BoardState boardState)
     {
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,from);
+        undoRecord.save(boardState,to);
+        
         Piece piece = boardState.getPiece(from);
         boardState.removePiece(from);
         boardState.setPiece(piece,to);
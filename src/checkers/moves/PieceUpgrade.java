@@ -3,6 +3,7 @@ package checkers.moves;
 import checkers.pieces.PieceKing;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import game.utility.Properties.PlayerColor;
 import java.io.Serializable;
@@ -48,6 +49,9 @@ public class PieceUpgrade extends CheckerMove implements Serializable {
     @Override
     public void commitMove(BoardState boardState)
     {
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,location);
+        
         Piece oldPiece         = boardState.getPiece(location);
         PlayerColor pieceColor = oldPiece.getColor();
         Piece newPiece         = PieceKing.create(pieceColor);
@@ -3,6 +3,7 @@ package checkers.players;
 import checkers.CheckersGame;
 import checkers.players.ai.CheckersAI;
 import game.Game;
+import game.boardgame.BoardState;
 import game.boardgame.players.BoardGamePlayerCPU;
 import game.moves.Move;
 import game.utility.Properties.PlayerColor;
@@ -12,11 +13,19 @@ import java.util.logging.Logger;
 /**
  * Inherits from a PlayerCPU, a Board Game Player CPU to provide same
  * interface for a phantom AI player
- * and same interface across any game: Checkers, Chess, Othello, Poker, Chinese-Checkers, etc.
+ * and same interface across any game: Checkers, Chess, Othello, Poker, Chinese-Checkers, etc.<br>
+ * - with CheckersAI.ponder, it searches on the opponent's time: after its move, the position
+ *   after the reply its search expects is searched; if the opponent makes that reply (a ponder
+ *   hit) the move found is committed with little or no wait, otherwise (a ponder miss) the
+ *   search is aborted and the position is searched as before
  * @author devang
  */
 public class CheckersPlayerCPU extends BoardGamePlayerCPU {
     
+    private CheckersAI checkersAI;       // search of the last move, or the ponder search
+    private Thread     ponderThread;     // thread of the ponder search, null if not pondering
+    private BoardState ponderBoardState; // position pondered
+    
     private CheckersPlayerCPU(Game game, PlayerColor color)
     {
         super(game,color);
@@ -38,20 +47,20 @@ public class CheckersPlayerCPU extends BoardGamePlayerCPU {
      * and indicates it is this Phantom AI's turn to Move
      * @param move Move that is made by the Human Player on the current game-state
      */
-    public void persistMove(Move move)
+    public synchronized void persistMove(Move move)
     {
         String loggerMsg = "human persist move: AI makes next move";
         Logger.getLogger(CheckersPlayerCPU.class.getName()).log(Level.FINE,loggerMsg);
         super.persistMove(move);
         
-        evaluateNextMove();
+        if (!stopPondering(true)) evaluateNextMove();
     }
     
     /**
      * Called after this Phantom AI picks a move
      * @param move Move that this phantom AI made
      */
-    public void commitMove(Move move)
+    public synchronized void commitMove(Move move)
     {
         String loggerMsg = "Phantom AI commit move";
         Logger.getLogger(CheckersPlayerCPU.class.getName()).log(Level.FINE,loggerMsg);
@@ -61,12 +70,76 @@ public class CheckersPlayerCPU extends BoardGamePlayerCPU {
             return;
         }
         super.commitMove(move);
+        startPondering();
+    }
+    
+    /**
+     * stops pondering when the game ends
+     */
+    @Override
+    public synchronized void terminate()
+    {
+        stopPondering(false);
+        super.terminate();
     }
     
     public void evaluateNextMove()
     {
-        CheckersAI checkersAI = new CheckersAI(this,((CheckersGame)game).getBoardState());
+        checkersAI = new CheckersAI(this,((CheckersGame)game).getBoardState());
         Thread evaluateMoveThread = new Thread(checkersAI);
         evaluateMoveThread.start();
     }
+    
+    /**
+     * starts searching, on the opponent's time, the position after the reply the last
+     * search expects, on a copy of the board; a ponder search still running is aborted first
+     */
+    private void startPondering()
+    {
+        stopPondering(false);
+        
+        CheckersGame checkersGame = (CheckersGame)game;
+        Move reply = (checkersAI != null) ? checkersAI.getExpectedReply() : null;
+        if (!CheckersAI.ponder || (reply == null) || checkersGame.checkGameOver()) return;
+        
+        ponderBoardState = BoardState.copy(checkersGame.getBoardState());
+        reply.commitMove(ponderBoardState);
+        
+        checkersAI = new CheckersAI(this,ponderBoardState,true);
+        ponderThread = new Thread(checkersAI);
+        ponderThread.start();
+    }
+    
+    /**
+     * stops searching on the opponent's time: on a ponder hit, the board is laid out as
+     * the position pondered, and the move found is committed; otherwise the search is
+     * aborted, and its thread joined
+     * @param opponentMoved true if the opponent has moved, and a ponder hit can be committed
+     * @return true on a ponder hit
+     */
+    private boolean stopPondering(boolean opponentMoved)
+    {
+        if (ponderThread == null) return false;
+        
+        boolean hit = opponentMoved && ponderBoardState.isSameLayout(((CheckersGame)game).getBoardState());
+        if (hit)
+        {
+            checkersAI.ponderHit();
+        }
+        else
+        {
+            checkersAI.abort();
+            try {
+                ponderThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ponderThread     = null;
+        ponderBoardState = null;
+        
+        String loggerMsg = hit ? "ponder hit" : "ponder miss";
+        Logger.getLogger(CheckersPlayerCPU.class.getName()).log(Level.FINE,loggerMsg);
+        return hit;
+    }
 }
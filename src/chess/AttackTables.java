@@ -0,0 +1,281 @@
+package chess;
+
+import static chess.ChessBoardState.NUM_SQUARES;
+import game.utility.Properties.Direction;
+
+/**
+ * precomputed attack sets for Chess pieces, as bitboards indexed by square (row * NUM_COLS + col)<br>
+ * - knight, king and pawn attacks are looked up directly from one mask per square<br>
+ * - bishop and rook attacks use magic bitboards: the blockers on a square's rays are
+ *   multiplied by a magic number, and the top bits of the product index a table of the
+ *   attack sets for every arrangement of blockers<br>
+ * - the magic numbers below were found by a random trial-and-error search, for this
+ *   square numbering; the lookup tables are filled from them when the class is loaded<br>
+ * - for two squares on a shared row, column or diagonal, the squares between them and
+ *   the whole line through them are also kept, for pins and blocking checks
+ * @author devang
+ */
+public final class AttackTables {
+    private static final int SIZE = 8; // attack tables are built for an 8x8 board
+
+    private static final int[][] KNIGHT_STEPS   = { {1,2}, {2,1}, {2,-1}, {1,-2}, {-1,-2}, {-2,-1}, {-2,1}, {-1,2} };
+    private static final int[][] KING_STEPS     = { {0,1}, {1,1}, {1,0}, {1,-1}, {0,-1}, {-1,-1}, {-1,0}, {-1,1} };
+    private static final int[][] BISHOP_STEPS   = { {1,1}, {1,-1}, {-1,-1}, {-1,1} };
+    private static final int[][] ROOK_STEPS     = { {0,1}, {1,0}, {0,-1}, {-1,0} };
+
+    private static final long[]   KNIGHT_ATTACKS = new long[NUM_SQUARES];
+    private static final long[]   KING_ATTACKS   = new long[NUM_SQUARES];
+    private static final long[][] PAWN_ATTACKS   = new long[Direction.values().length][NUM_SQUARES];
+
+    private static final long[]   BISHOP_MAGICS  = {
+        0x0008010128010104L, 0x0008104400882100L, 0x04440800B9018440L, 0x4004410420008051L,
+        0x0806211003284000L, 0x0010882440400080L, 0x000E861002200042L, 0x0400410041202000L,
+        0x0020052002040101L, 0x080008C801040021L, 0x2018088084048001L, 0x0A01040414804800L,
+        0x1000840420200400L, 0x1020220202204009L, 0x00C041010121A000L, 0x0020088041501002L,
+        0x030A512088100880L, 0x006408A048220441L, 0x0081081004002040L, 0x9001112804110020L,
+        0x0041008820080001L, 0x4201020080A00100L, 0x8184910100901102L, 0x90920008410088A8L,
+        0x0520114844040810L, 0x3004028A04480800L, 0x4024010030044080L, 0x00044800208201C0L,
+        0x8402002012008062L, 0xC044448001101000L, 0x102C224008880410L, 0xA400408021009800L,
+        0x0A18208840058800L, 0x0888222210110408L, 0x2800202424080800L, 0x0010820080A80082L,
+        0x2001010104140040L, 0x06C1100081010800L, 0x0812088110320809L, 0x0904110020021080L,
+        0x200C0404C01A0408L, 0x84248404A0000240L, 0x000500210101100EL, 0x000100A214004800L,
+        0x110020420C008080L, 0x10A4608802000042L, 0x10604240C2010100L, 0x001000A088910100L,
+        0x0A31080110880008L, 0x0000804410040208L, 0x0902408400880001L, 0x4008022084110009L,
+        0x0028301002088000L, 0x4000404204011000L, 0x0010903001004288L, 0x0005901082008000L,
+        0x000086004A024008L, 0x0068002108021000L, 0x8082021831080810L, 0x10E200002841108CL,
+        0x4840004011A20214L, 0x4006814044088082L, 0x0840202230012300L, 0x8022209800828280L
+    };
+    private static final long[]   ROOK_MAGICS    = {
+        0xA480002014400480L, 0x1080148040002000L, 0x0100082000150040L, 0x0900090010002004L,
+        0x0200041020020008L, 0x0C00840010200802L, 0x0280008001000A00L, 0x0200010048240082L,
+        0x0026800240022080L, 0x0000802000400080L, 0x0002802000801001L, 0x0006002048D04200L,
+        0x0005000448001100L, 0x100A000428500601L, 0x2201010002000401L, 0x0006001244091682L,
+        0x0080094000406000L, 0x1220008040002088L, 0x4060848020021000L, 0x1400090020100100L,
+        0x0088010009000410L, 0x0022808002010400L, 0x00802400024810A1L, 0x088002000400A041L,
+        0x2140092680004082L, 0x8084200840100240L, 0x0010100080200088L, 0x0048008280100088L,
+        0x0408008080080400L, 0x0140040080020080L, 0x2504020080800100L, 0x0020010200188044L,
+        0x0010400820800080L, 0x0010102000404000L, 0x0000100080802000L, 0x0510100101000A20L,
+        0x4400080080800400L, 0x0002004822001084L, 0x0022420884002110L, 0x4C85008042000104L,
+        0x0000400080028028L, 0x0004500020044004L, 0x0002001880420020L, 0xC000100009010020L,
+        0x4064008008008004L, 0x8000020004008080L, 0x0000024108040010L, 0x00011048810A0004L,
+        0x0340024080002280L, 0x0804208842010200L, 0x1208A0008A900280L, 0x0110028010080280L,
+        0x0100800400080080L, 0x4001000400082300L, 0x3004020810513400L, 0x0074010040840200L,
+        0x0029048201304022L, 0x200281020050A142L, 0x4801081240220082L, 0x0A70A00810010015L,
+        0x0C020010E0090402L, 0x02010008040002C1L, 0x9060080102100084L, 0x0008042041040482L
+    };
+
+    private static final long[]   BISHOP_MASKS   = new long[NUM_SQUARES];
+    private static final int[]    BISHOP_SHIFTS  = new int[NUM_SQUARES];
+    private static final long[][] BISHOP_TABLES  = new long[NUM_SQUARES][];
+
+    private static final long[][] BETWEEN        = new long[NUM_SQUARES][NUM_SQUARES];
+    private static final long[][] LINE           = new long[NUM_SQUARES][NUM_SQUARES];
+
+    private static final long[]   ROOK_MASKS     = new long[NUM_SQUARES];
+    private static final int[]    ROOK_SHIFTS    = new int[NUM_SQUARES];
+    private static final long[][] ROOK_TABLES    = new long[NUM_SQUARES][];
+
+    static
+    {
+        for (int square = 0; square < NUM_SQUARES; square++)
+        {
+            KNIGHT_ATTACKS[square] = stepAttacks(square,KNIGHT_STEPS);
+            KING_ATTACKS[square]   = stepAttacks(square,KING_STEPS);
+            PAWN_ATTACKS[Direction.UP.ordinal()][square]   = stepAttacks(square,new int[][] { {-1,-1}, {1,-1} });
+            PAWN_ATTACKS[Direction.DOWN.ordinal()][square] = stepAttacks(square,new int[][] { {-1,1}, {1,1} });
+
+            initMagic(square,BISHOP_STEPS,BISHOP_MAGICS[square],BISHOP_MASKS,BISHOP_SHIFTS,BISHOP_TABLES);
+            initMagic(square,ROOK_STEPS,ROOK_MAGICS[square],ROOK_MASKS,ROOK_SHIFTS,ROOK_TABLES);
+            initLines(square);
+        }
+    }
+
+    private AttackTables() { }
+
+    /**
+     * gets the squares a knight attacks
+     * @param square square of the knight
+     * @return bitboard of attacked squares
+     */
+    public static long knightAttacks(int square)
+    {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * gets the squares a king attacks
+     * @param square square of the king
+     * @return bitboard of attacked squares
+     */
+    public static long kingAttacks(int square)
+    {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * gets the squares a pawn attacks: the two diagonal squares one row forward
+     * @param direction direction the pawn moves
+     * @param square square of the pawn
+     * @return bitboard of attacked squares
+     */
+    public static long pawnAttacks(Direction direction, int square)
+    {
+        return PAWN_ATTACKS[direction.ordinal()][square];
+    }
+
+    /**
+     * gets the squares a bishop attacks: along each diagonal, up to and including the first piece
+     * @param square square of the bishop
+     * @param occupied bitboard of all pieces on the board
+     * @return bitboard of attacked squares
+     */
+    public static long bishopAttacks(int square, long occupied)
+    {
+        int index = (int)(((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLES[square][index];
+    }
+
+    /**
+     * gets the squares a rook attacks: along each row and column, up to and including the first piece
+     * @param square square of the rook
+     * @param occupied bitboard of all pieces on the board
+     * @return bitboard of attacked squares
+     */
+    public static long rookAttacks(int square, long occupied)
+    {
+        int index = (int)(((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLES[square][index];
+    }
+
+    /**
+     * gets the squares a queen attacks: the union of bishop and rook attacks
+     * @param square square of the queen
+     * @param occupied bitboard of all pieces on the board
+     * @return bitboard of attacked squares
+     */
+    public static long queenAttacks(int square, long occupied)
+    {
+        return bishopAttacks(square,occupied) | rookAttacks(square,occupied);
+    }
+
+    /**
+     * gets the squares strictly between two squares on a shared row, column or diagonal
+     * @param from first square
+     * @param to second square
+     * @return bitboard of the squares between, 0 if the squares are not aligned
+     */
+    public static long between(int from, int to)
+    {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * gets the whole row, column or diagonal through two squares, from edge to edge
+     * @param from first square
+     * @param to second square
+     * @return bitboard of the line through both squares, 0 if the squares are not aligned
+     */
+    public static long line(int from, int to)
+    {
+        return LINE[from][to];
+    }
+
+    private static void initLines(int square)
+    {
+        int col = square % SIZE;
+        int row = square / SIZE;
+        for (int[] step : KING_STEPS)
+        {
+            long line = slideAttacks(square,new int[][] { step, {-step[0],-step[1]} },0L,true) | (1L << square);
+            long ray  = 0L;
+            for (int toCol = col + step[0], toRow = row + step[1];
+                     (toCol >= 0) && (toCol < SIZE) && (toRow >= 0) && (toRow < SIZE);
+                     toCol += step[0], toRow += step[1])
+            {
+                int to = toRow * SIZE + toCol;
+                BETWEEN[square][to] = ray;
+                LINE[square][to]    = line;
+                ray |= 1L << to;
+            }
+        }
+    }
+
+    private static long stepAttacks(int square, int[][] steps)
+    {
+        long attacks = 0L;
+        int col = square % SIZE;
+        int row = square / SIZE;
+        for (int[] step : steps)
+        {
+            int toCol = col + step[0];
+            int toRow = row + step[1];
+            if ((toCol >= 0) && (toCol < SIZE) && (toRow >= 0) && (toRow < SIZE))
+                attacks |= 1L << (toRow * SIZE + toCol);
+        }
+        return attacks;
+    }
+
+    /**
+     * walks each ray from a square, up to and including the first occupied square
+     * @param square start square
+     * @param steps {column, row} step of each ray
+     * @param occupied bitboard of occupied squares
+     * @param edges false to stop each ray one square before the edge of the board (blocker masks)
+     * @return bitboard of the squares reached
+     */
+    private static long slideAttacks(int square, int[][] steps, long occupied, boolean edges)
+    {
+        long attacks = 0L;
+        int col = square % SIZE;
+        int row = square / SIZE;
+        for (int[] step : steps)
+        {
+            int toCol = col + step[0];
+            int toRow = row + step[1];
+            while ((toCol >= 0) && (toCol < SIZE) && (toRow >= 0) && (toRow < SIZE))
+            {
+                if (!edges)
+                {
+                    int nextCol = toCol + step[0];
+                    int nextRow = toRow + step[1];
+                    if ((nextCol < 0) || (nextCol >= SIZE) || (nextRow < 0) || (nextRow >= SIZE)) break;
+                }
+                long bit = 1L << (toRow * SIZE + toCol);
+                attacks |= bit;
+                if ((occupied & bit) != 0L) break;
+                toCol += step[0];
+                toRow += step[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * fills the attack table of a square for a sliding piece: one entry for every
+     * subset of the blockers on its rays, at the index the magic number maps it to
+     * @param square square of the sliding piece
+     * @param steps {column, row} step of each ray of the piece
+     * @param magic magic number of the square
+     * @param masks blocker masks of the piece, filled for the square
+     * @param shifts index shifts of the piece, filled for the square
+     * @param tables attack tables of the piece, filled for the square
+     */
+    private static void initMagic(int square, int[][] steps, long magic, long[] masks, int[] shifts, long[][] tables)
+    {
+        long mask  = slideAttacks(square,steps,0L,false);
+        int  shift = 64 - Long.bitCount(mask);
+        long[] table = new long[1 << Long.bitCount(mask)];
+
+        // enumerate every subset of the blocker mask (Carry-Rippler)
+        long subset = 0L;
+        do
+        {
+            table[(int)((subset * magic) >>> shift)] = slideAttacks(square,steps,subset,true);
+            subset = (subset - mask) & mask;
+        } while (subset != 0L);
+
+        masks[square]  = mask;
+        shifts[square] = shift;
+        tables[square] = table;
+    }
+}
@@ -1,81 +1,831 @@
 package chess;
 
-import chess.pieces.PieceKing;
+import chess.moves.PackedMove;
+import chess.pieces.ChessPiece;
+import chess.pieces.PieceBishop;
+import chess.pieces.PieceKnight;
+import chess.pieces.PieceQueen;
+import chess.pieces.PieceRook;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
 import game.utility.Location;
-import game.utility.Properties;
+import game.utility.Properties.Direction;
 import game.utility.Properties.PlayerColor;
-import java.util.HashMap;
-import java.util.Map;
+import static chess.ChessRules.NUM_COLS;
+import static chess.ChessRules.NUM_ROWS;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 
 /**
  * Maintains the state of the board for a game<br>
- * - Chess uses this to keep track of move history and king locations<br>
- *   for fast access to the King locations<br>
- * - Move history is necessary to validate castling, en-passant and king in check<br>
+ * - pieces are kept in twelve 64-bit boards (one per piece type and color)<br>
+ *   plus an occupancy word per color and one for the whole board<br>
+ * - a 64-space mailbox answers getPiece without scanning the boards<br>
+ * - a square index is (row * NUM_COLS + col): bit 0 is the top-left space<br>
+ * - king squares are kept for fast access to the King locations<br>
+ * - the direction each color moves is kept for pawn attacks: by default RED moves UP<br>
+ * - side to move, castling rights and the en-passant square are kept with the pieces,<br>
+ *   and all of them are folded into an incrementally-updated Zobrist hash key<br>
+ * - the halfmove clock (moves since the last capture or pawn move) and the fullmove
+ *   number are kept too, so pieces need no history of their own: every piece of a
+ *   type and color is one shared, immutable object<br>
+ * - material and piece-square scores (middlegame and endgame) per color and the game
+ *   phase are also updated with every piece set or removed, for the AI evaluation<br>
+ * - packed moves (see PackedMove) are made and undone in place with makeMove and
+ *   unmakeMove, which keep what they overwrite on a preallocated stack: a search
+ *   does not allocate anything to play through a line<br>
  * - a copy can be created to test Moves, as in testing if a King is in Check<br>
  * - copies of this board state (deep-copy) can also be made to evaluated<br>
  *   moves in an AI Player (i.e. alpha-beta pruning and tree-representation<br>
- * 
+ *
  * @author devang
  */
 public class ChessBoardState extends BoardState {
-    
-    private Map<PlayerColor,PieceKing> kings;
-    private Map<PieceKing,Location>    kingLocations;
-    
+
+    public static final int NUM_SQUARES = 64;
+
+    // castling-right bits: left castles toward the rook on column 0, right toward column NUM_COLS-1
+    public static final int RED_LEFT_CASTLE    = 1;
+    public static final int RED_RIGHT_CASTLE   = 2;
+    public static final int BLACK_LEFT_CASTLE  = 4;
+    public static final int BLACK_RIGHT_CASTLE = 8;
+    public static final int NO_CASTLING        = 0;
+
+    public static final int NO_EN_PASSANT = -1;
+
+    // column of the kings in a starting setup with RED moving UP; mirrored when RED moves DOWN
+    private static final int KING_HOME_COL = 4;
+
+    private static final PlayerColor[] COLORS = PlayerColor.values(); // values() copies its array on every call
+
+    // deepest line of packed moves that can be made on a board state before any is undone
+    public static final int MAX_MOVE_DEPTH = 256;
+
+    // Zobrist keys: fixed seed, so hash keys are reproducible from run to run
+    private static final long[][] PIECE_KEYS      = new long[2 * ChessPiece.NUM_TYPES][NUM_SQUARES];
+    private static final long[]   CASTLING_KEYS   = new long[16];
+    private static final long[]   EN_PASSANT_KEYS = new long[NUM_SQUARES];
+    private static final long     SIDE_KEY;
+
+    static
+    {
+        Random random = new Random(0x5EED_C4E55L);
+        for (long[] pieceKeys : PIECE_KEYS)
+            for (int square = 0; square < NUM_SQUARES; square++)
+                pieceKeys[square] = random.nextLong();
+        for (int rights = 1; rights < CASTLING_KEYS.length; rights++)
+            CASTLING_KEYS[rights] = random.nextLong();
+        for (int square = 0; square < NUM_SQUARES; square++)
+            EN_PASSANT_KEYS[square] = random.nextLong();
+        SIDE_KEY = random.nextLong();
+    }
+
+    private final long[]       pieceBoards; // indexed by pieceIndex(color,type)
+    private final long[]       colorBoards; // indexed by color ordinal
+    private long               occupied;
+    private final ChessPiece[] squares;
+    private final int[]        kingSquares; // indexed by color ordinal, -1 if no king
+    private final Direction[]  colorDirections; // indexed by color ordinal
+
+    private PlayerColor        sideToMove;
+    private int                castlingRights;
+    private final int[]        castlingMasks; // per square: rights kept when a move touches the square
+    private int                enPassantSquare;
+    private long               enPassantKey; // key of the en-passant square in the hash key, 0 if none
+    private int                halfmoveClock;
+    private int                fullmoveNumber;
+    private long               hashKey;
+
+    private final int[]        middlegameScores; // indexed by color ordinal
+    private final int[]        endgameScores;    // indexed by color ordinal
+    private int                phase;
+
+    // undo stack of makeMove: the moving piece, the captured piece and the position state
+    private final ChessPiece[] undoMovers;
+    private final ChessPiece[] undoCaptures;
+    private final long[]       undoStates;
+    private int                undoDepth;
+
     /**
      * constructor: <br>
-     * after calling superclass, initializes the mapping to the king and location of the king
+     * after calling superclass, initializes empty piece boards and an empty mailbox
      */
     public ChessBoardState()
     {
         super();
-        kings         = new HashMap<>();
-        kingLocations = new HashMap<>();
+        pieceBoards = new long[2 * ChessPiece.NUM_TYPES];
+        colorBoards = new long[2];
+        occupied    = 0L;
+        squares     = new ChessPiece[NUM_SQUARES];
+        kingSquares = new int[] { -1, -1 };
+        colorDirections = new Direction[] { Direction.UP, Direction.DOWN };
+
+        sideToMove      = ChessRules.INITIAL_PLAYER_COLOR;
+        castlingRights  = NO_CASTLING;
+        castlingMasks   = new int[NUM_SQUARES];
+        enPassantSquare = NO_EN_PASSANT;
+        enPassantKey    = 0L;
+        halfmoveClock   = 0;
+        fullmoveNumber  = 1;
+        hashKey         = 0L;
+
+        middlegameScores = new int[2];
+        endgameScores    = new int[2];
+        phase            = 0;
+
+        undoMovers   = new ChessPiece[MAX_MOVE_DEPTH];
+        undoCaptures = new ChessPiece[MAX_MOVE_DEPTH];
+        undoStates   = new long[MAX_MOVE_DEPTH];
+        undoDepth    = 0;
+        for (int square = 0; square < NUM_SQUARES; square++)
+            castlingMasks[square] = ~NO_CASTLING;
     }
-    
+
+    /**
+     * gets the square index for a location on the board
+     * @param location location on the board
+     * @return square index (row * NUM_COLS + col)
+     */
+    public static int square(Location location)
+    {
+        return Location.getRow(location) * NUM_COLS + Location.getCol(location);
+    }
+
+    /**
+     * gets the location on the board for a square index
+     * @param square square index (row * NUM_COLS + col)
+     * @return location on the board
+     */
+    public static Location location(int square)
+    {
+        return Location.of(square % NUM_COLS, square / NUM_COLS);
+    }
+
+    /**
+     * gets the index of the bitboard that holds pieces of a color and type
+     * @param color color of the pieces
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @return index into the twelve piece boards
+     */
+    public static int pieceIndex(PlayerColor color, int type)
+    {
+        return color.ordinal() * ChessPiece.NUM_TYPES + type;
+    }
+
     /**
      * sets a piece location on the board<br>
-     * - this class inherits from the super-class to intervene and
-     *   simultaneously make the mapping to the king location consistent and up-to-date
+     * - this class overrides the super-class to keep the piece boards,
+     *   the occupancy words and the king squares consistent and up-to-date
      * @param piece the piece to set on the board
      * @param location the location on the board, at which to set the piece
      */
     @Override
     public void setPiece(Piece piece, Location location)
     {
-        if (piece instanceof PieceKing)
+        if (location == null) return;
+        setPiece((ChessPiece)piece, square(location));
+    }
+
+    /**
+     * sets a piece on a square of the board, replacing any piece already there
+     * @param piece the piece to set on the board
+     * @param square square index at which to set the piece
+     */
+    public void setPiece(ChessPiece piece, int square)
+    {
+        if (squares[square] != null) removePiece(square);
+        if (piece == null) return;
+
+        long bit   = 1L << square;
+        int  color = piece.getColor().ordinal();
+        int  type  = piece.getType();
+
+        squares[square] = piece;
+        hashKey ^= PIECE_KEYS[color * ChessPiece.NUM_TYPES + type][square];
+        pieceBoards[color * ChessPiece.NUM_TYPES + type] |= bit;
+        colorBoards[color] |= bit;
+        occupied |= bit;
+
+        Direction direction = colorDirections[color];
+        middlegameScores[color] += PieceSquareTables.middlegame(type,square,direction);
+        endgameScores[color]    += PieceSquareTables.endgame(type,square,direction);
+        phase                   += PieceSquareTables.phase(type);
+
+        if (type == ChessPiece.KING) kingSquares[color] = square;
+    }
+
+    /**
+     * gets the piece at the location on the board
+     * @param location location at which to get a reference to a piece
+     * @return piece at the location, if not empty, null otherwise
+     */
+    @Override
+    public Piece getPiece(Location location)
+    {
+        if (location == null) return null;
+        return squares[square(location)];
+    }
+
+    /**
+     * gets the piece on a square of the board
+     * @param square square index at which to get a reference to a piece
+     * @return piece on the square, if not empty, null otherwise
+     */
+    public ChessPiece getPiece(int square)
+    {
+        return squares[square];
+    }
+
+    /**
+     * removes the piece at the location on the board
+     * @param location location at which to remove the piece
+     */
+    @Override
+    public void removePiece(Location location)
+    {
+        if (location == null) return;
+        removePiece(square(location));
+    }
+
+    /**
+     * removes the piece on a square of the board
+     * @param square square index at which to remove the piece
+     */
+    public void removePiece(int square)
+    {
+        ChessPiece piece = squares[square];
+        if (piece == null) return;
+
+        long bit   = ~(1L << square);
+        int  color = piece.getColor().ordinal();
+        int  type  = piece.getType();
+
+        squares[square] = null;
+        hashKey ^= PIECE_KEYS[color * ChessPiece.NUM_TYPES + type][square];
+        pieceBoards[color * ChessPiece.NUM_TYPES + type] &= bit;
+        colorBoards[color] &= bit;
+        occupied &= bit;
+
+        Direction direction = colorDirections[color];
+        middlegameScores[color] -= PieceSquareTables.middlegame(type,square,direction);
+        endgameScores[color]    -= PieceSquareTables.endgame(type,square,direction);
+        phase                   -= PieceSquareTables.phase(type);
+
+        if ((type == ChessPiece.KING) && (kingSquares[color] == square)) kingSquares[color] = -1;
+    }
+
+    /**
+     * determines whether the space at location on the board is empty
+     * @param location location on the board at which to determine emptiness
+     * @return true if the space on the board is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty(Location location)
+    {
+        if (location == null) return true;
+        return (occupied & (1L << square(location))) == 0L;
+    }
+
+    /**
+     * determines whether a square of the board is empty
+     * @param square square index at which to determine emptiness
+     * @return true if the square is empty, false otherwise
+     */
+    public boolean isEmpty(int square)
+    {
+        return (occupied & (1L << square)) == 0L;
+    }
+
+    /**
+     * gets the bitboard of the pieces of one color and type
+     * @param color color of the pieces
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @return 64-bit board with a bit set on every square holding such a piece
+     */
+    public long getPieceBoard(PlayerColor color, int type)
+    {
+        return pieceBoards[color.ordinal() * ChessPiece.NUM_TYPES + type];
+    }
+
+    /**
+     * gets the occupancy of one color
+     * @param color color of the pieces
+     * @return 64-bit board with a bit set on every square holding a piece of that color
+     */
+    public long getColorBoard(PlayerColor color)
+    {
+        return colorBoards[color.ordinal()];
+    }
+
+    /**
+     * gets the occupancy of the whole board
+     * @return 64-bit board with a bit set on every non-empty square
+     */
+    public long getOccupied()
+    {
+        return occupied;
+    }
+
+    /**
+     * gets the square of the king of one color
+     * @param color color of the king
+     * @return square index of the king, -1 if there is no such king on the board
+     */
+    public int getKingSquare(PlayerColor color)
+    {
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * sets the directions the pawns of each color move, as in ChessProperties for the GUI
+     * @param redDirection direction RED pawns move
+     * @param blackDirection direction BLACK pawns move
+     */
+    public void setColorDirections(Direction redDirection, Direction blackDirection)
+    {
+        colorDirections[PlayerColor.RED.ordinal()]   = redDirection;
+        colorDirections[PlayerColor.BLACK.ordinal()] = blackDirection;
+        refreshScores();
+    }
+    
+    // piece-square scores depend on the directions: recomputes them from the mailbox
+    private void refreshScores()
+    {
+        middlegameScores[0] = middlegameScores[1] = 0;
+        endgameScores[0]    = endgameScores[1]    = 0;
+        phase = 0;
+        long remaining = occupied;
+        while (remaining != 0L)
         {
-            PlayerColor kingColor = ((PieceKing)piece).getColor();
-            kings.put(kingColor,(PieceKing)piece);
-            if (kingLocations.containsKey((PieceKing)piece))
-                kingLocations.replace((PieceKing)piece,location);
-            else
-                kingLocations.put((PieceKing)piece,location);
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            
+            ChessPiece piece     = squares[square];
+            int        color     = piece.getColor().ordinal();
+            int        type      = piece.getType();
+            Direction  direction = colorDirections[color];
+            middlegameScores[color] += PieceSquareTables.middlegame(type,square,direction);
+            endgameScores[color]    += PieceSquareTables.endgame(type,square,direction);
+            phase                   += PieceSquareTables.phase(type);
         }
-        super.setPiece(piece,location);
     }
     
     /**
-     * deep-copy of this board state, for analyzing Moves offline
+     * gets the direction the pawns of a color move
+     * @param color color of the pawns
+     * @return direction the pawns of the color move
+     */
+    public Direction getColorDirection(PlayerColor color)
+    {
+        return colorDirections[color.ordinal()];
+    }
+    
+    /**
+     * gets the sum of the middlegame values (material plus square bonus) of a color's pieces
+     * @param color color of the pieces
+     * @return middlegame score of the color, in centipawns
+     */
+    public int getMiddlegameScore(PlayerColor color)
+    {
+        return middlegameScores[color.ordinal()];
+    }
+    
+    /**
+     * gets the sum of the endgame values (material plus square bonus) of a color's pieces
+     * @param color color of the pieces
+     * @return endgame score of the color, in centipawns
+     */
+    public int getEndgameScore(PlayerColor color)
+    {
+        return endgameScores[color.ordinal()];
+    }
+    
+    /**
+     * gets the game phase: the phase weights of the minor and major pieces on the board
+     * @return PieceSquareTables.MAX_PHASE with all pieces on the board, 0 with only kings and pawns
+     */
+    public int getPhase()
+    {
+        return phase;
+    }
+    
+    /**
+     * gets the Zobrist hash key of this position<br>
+     * - covers piece placement, side to move, castling rights and the en-passant square,
+     *   if a pawn can take en passant: positions that differ only by an en-passant square
+     *   no pawn can use have the same key, so the game and the search see them as repeated<br>
+     * - kept up-to-date incrementally by every change to the board state
+     * @return 64-bit hash key of this position
+     */
+    public long getHashKey()
+    {
+        return hashKey;
+    }
+
+    /**
+     * gets the color of the player who has the next move in this position
+     * @return color of the side to move
+     */
+    public PlayerColor getSideToMove()
+    {
+        return sideToMove;
+    }
+
+    /**
+     * sets the color of the player who has the next move in this position
+     * @param color color of the side to move
+     */
+    public void setSideToMove(PlayerColor color)
+    {
+        if (color != sideToMove) hashKey ^= SIDE_KEY;
+        sideToMove = color;
+    }
+
+    /**
+     * gets the castling rights still available in this position
+     * @return combination of the RED/BLACK LEFT/RIGHT_CASTLE bits
+     */
+    public int getCastlingRights()
+    {
+        return castlingRights;
+    }
+
+    /**
+     * sets the castling rights available in this position
+     * @param rights combination of the RED/BLACK LEFT/RIGHT_CASTLE bits
+     */
+    public void setCastlingRights(int rights)
+    {
+        hashKey ^= CASTLING_KEYS[castlingRights] ^ CASTLING_KEYS[rights];
+        castlingRights = rights;
+    }
+
+    /**
+     * gets the square a pawn skipped over with a two-space move on the last move
+     * @return square index, NO_EN_PASSANT if the last move was not a two-space pawn move
+     */
+    public int getEnPassantSquare()
+    {
+        return enPassantSquare;
+    }
+
+    /**
+     * sets the square a pawn skipped over with a two-space move on the last move<br>
+     * - set after the pieces of the position are placed: the square is only folded into
+     *   the hash key if a pawn beside the one that skipped it can take en passant
+     * @param square square index, NO_EN_PASSANT if there is none
+     */
+    public void setEnPassantSquare(int square)
+    {
+        hashKey ^= enPassantKey;
+        enPassantKey = ((square != NO_EN_PASSANT) && canCaptureEnPassant(square)) ? EN_PASSANT_KEYS[square] : 0L;
+        hashKey ^= enPassantKey;
+        enPassantSquare = square;
+    }
+
+    // a pawn of the other color stands beside the pawn that skipped the square (pseudo-legal:
+    // the capture may still leave its king in check)
+    private boolean canCaptureEnPassant(int square)
+    {
+        int row = square / NUM_COLS;
+        int col = square % NUM_COLS;
+        int pawnSquare = (row < NUM_ROWS / 2) ? (square + NUM_COLS) : (square - NUM_COLS);
+        ChessPiece pawn = squares[pawnSquare];
+        if ((pawn == null) || (pawn.getType() != ChessPiece.PAWN)) return false;
+
+        PlayerColor color = ChessRules.oppositeColor(pawn.getColor());
+        return ((col > 0)            && isPawn(pawnSquare - 1,color))
+            || ((col < NUM_COLS - 1) && isPawn(pawnSquare + 1,color));
+    }
+
+    /**
+     * derives the castling rights from the kings and rooks on their home spaces<br>
+     * - a king on its home space (see kingHomeSquare), and a rook of its color in a corner
+     *   of that row, keep the right to castle on that side: as in a starting setup, neither
+     *   is taken to have moved<br>
+     * - the directions of the colors are set first: they give the home spaces<br>
+     * - also records which squares take each right away when a move touches them
+     */
+    public void initializeCastlingRights()
+    {
+        int rights = NO_CASTLING;
+        for (int square = 0; square < NUM_SQUARES; square++)
+            castlingMasks[square] = ~NO_CASTLING;
+
+        for (PlayerColor color : PlayerColor.values())
+        {
+            int kingSquare = kingSquares[color.ordinal()];
+            if (kingSquare < 0) continue;
+
+            int leftRight  = (color == PlayerColor.RED) ? RED_LEFT_CASTLE  : BLACK_LEFT_CASTLE;
+            int rightRight = (color == PlayerColor.RED) ? RED_RIGHT_CASTLE : BLACK_RIGHT_CASTLE;
+            castlingMasks[kingSquare] &= ~(leftRight | rightRight);
+
+            if (kingSquare != kingHomeSquare(color)) continue;
+
+            int kingRow = kingSquare / NUM_COLS;
+
+            int leftRook  = kingRow * NUM_COLS;
+            int rightRook = kingRow * NUM_COLS + NUM_COLS - 1;
+            castlingMasks[leftRook]  &= ~leftRight;
+            castlingMasks[rightRook] &= ~rightRight;
+
+            if (isRook(leftRook,color))  rights |= leftRight;
+            if (isRook(rightRook,color)) rights |= rightRight;
+        }
+
+        setCastlingRights(rights);
+    }
+
+    /**
+     * empties the board and resets the position state to that of a new board state,
+     * so another position can be set up on this one without creating a new one<br>
+     * - the directions of the colors are kept
+     */
+    public void clear()
+    {
+        while (occupied != 0L) removePiece(Long.numberOfTrailingZeros(occupied));
+
+        setCastlingRights(NO_CASTLING);
+        setEnPassantSquare(NO_EN_PASSANT);
+        setSideToMove(ChessRules.INITIAL_PLAYER_COLOR);
+        halfmoveClock  = 0;
+        fullmoveNumber = 1;
+        undoDepth      = 0;
+        for (int square = 0; square < NUM_SQUARES; square++)
+            castlingMasks[square] = ~NO_CASTLING;
+    }
+
+    // the home space of a king: on the back row of its color, in the column of the kings of a
+    // starting setup, which is mirrored when the board is turned around (RED moving DOWN)
+    private int kingHomeSquare(PlayerColor color)
+    {
+        int row = (colorDirections[color.ordinal()] == Direction.UP) ? NUM_ROWS - 1 : 0;
+        int col = (colorDirections[PlayerColor.RED.ordinal()] == Direction.UP) ? KING_HOME_COL : NUM_COLS - 1 - KING_HOME_COL;
+        return row * NUM_COLS + col;
+    }
+
+    private boolean isPawn(int square, PlayerColor color)
+    {
+        ChessPiece piece = squares[square];
+        return (piece != null) && (piece.getType() == ChessPiece.PAWN) && (piece.getColor() == color);
+    }
+
+    private boolean isRook(int square, PlayerColor color)
+    {
+        ChessPiece piece = squares[square];
+        return (piece != null) && (piece.getType() == ChessPiece.ROOK) && (piece.getColor() == color);
+    }
+
+    /**
+     * gets the number of moves since the last capture or pawn move, for the fifty-move rule
+     * @return halfmove clock, in plies
+     */
+    public int getHalfmoveClock()
+    {
+        return halfmoveClock;
+    }
+
+    /**
+     * sets the number of moves since the last capture or pawn move
+     * @param clock halfmove clock, in plies
+     */
+    public void setHalfmoveClock(int clock)
+    {
+        halfmoveClock = clock;
+    }
+
+    /**
+     * gets the number of the full move being played: it starts at 1, and goes up
+     * after each move of the player who does not move first
+     * @return fullmove number
+     */
+    public int getFullmoveNumber()
+    {
+        return fullmoveNumber;
+    }
+
+    /**
+     * sets the number of the full move being played
+     * @param number fullmove number, from 1
+     */
+    public void setFullmoveNumber(int number)
+    {
+        fullmoveNumber = number;
+    }
+
+    /**
+     * packs the side to move, castling rights, en-passant square, halfmove clock
+     * and fullmove number into one long, so a Move can restore them when it is undone
+     * @return packed position state
+     */
+    public long getPositionState()
+    {
+        return castlingRights | ((enPassantSquare + 1) << 4) | (sideToMove.ordinal() << 11)
+             | ((long)(halfmoveClock & 0xFFFFF) << 12) | ((long)fullmoveNumber << 32);
+    }
+
+    /**
+     * restores the side to move, castling rights, en-passant square, halfmove clock
+     * and fullmove number from a packed long
+     * @param positionState packed position state from getPositionState
+     */
+    public void setPositionState(long positionState)
+    {
+        setCastlingRights((int)positionState & 0xF);
+        setEnPassantSquare((((int)positionState >>> 4) & 0x7F) - 1);
+        setSideToMove(COLORS[((int)positionState >>> 11) & 0x1]);
+        halfmoveClock  = (int)(positionState >>> 12) & 0xFFFFF;
+        fullmoveNumber = (int)(positionState >>> 32);
+    }
+
+    /**
+     * updates the position state after the pieces of a move have been placed:<br>
+     * - removes castling rights for a king or rook leaving or captured on its home space<br>
+     * - records the en-passant square of a two-space pawn move<br>
+     * - restarts the halfmove clock on a capture or pawn move, and counts the fullmove<br>
+     * - passes the move to the other side
+     * @param from square index the moving piece left
+     * @param to square index the moving piece arrived at
+     * @param newEnPassantSquare square skipped by a two-space pawn move, or NO_EN_PASSANT
+     * @param irreversible true for a capture or a pawn move
+     */
+    public void updatePositionState(int from, int to, int newEnPassantSquare, boolean irreversible)
+    {
+        setCastlingRights(castlingRights & castlingMasks[from] & castlingMasks[to]);
+        setEnPassantSquare(newEnPassantSquare);
+        halfmoveClock = irreversible ? 0 : (halfmoveClock + 1);
+        if (sideToMove != ChessRules.INITIAL_PLAYER_COLOR) fullmoveNumber++;
+        setSideToMove(ChessRules.oppositeColor(sideToMove));
+    }
+
+    /**
+     * makes a packed move on this board state, to be taken back with unmakeMove<br>
+     * - does the same as committing the ChessMove of the packed move, without creating
+     *   an undo record: what the move overwrites goes on this board state's undo stack
+     * @param move packed move, legal in this position
+     */
+    public void makeMove(int move)
+    {
+        int        from  = PackedMove.getFrom(move);
+        int        to    = PackedMove.getTo(move);
+        int        kind  = PackedMove.getKind(move);
+        ChessPiece piece = squares[from];
+
+        undoMovers[undoDepth]   = piece;
+        undoCaptures[undoDepth] = squares[to];
+        undoStates[undoDepth]   = getPositionState();
+        undoDepth++;
+
+        int newEnPassantSquare = NO_EN_PASSANT;
+        removePiece(from);
+        switch (kind)
+        {
+            case PackedMove.CASTLE:
+                int rookFrom = PackedMove.getRookFrom(move);
+                ChessPiece rook = squares[rookFrom];
+                removePiece(rookFrom);
+                setPiece(rook,PackedMove.getRookTo(move));
+                setPiece(piece,to);
+                break;
+            case PackedMove.EN_PASSANT:
+                int captureSquare = enPassantCaptureSquare(from,to);
+                undoCaptures[undoDepth-1] = squares[captureSquare];
+                removePiece(captureSquare);
+                setPiece(piece,to);
+                break;
+            case PackedMove.PROMOTION:
+                setPiece(promotionPiece(piece.getColor(),PackedMove.getPromotionType(move)),to);
+                break;
+            default:
+                setPiece(piece,to);
+                if ((piece.getType() == ChessPiece.PAWN) && (Math.abs(to - from) == 2 * NUM_COLS))
+                    newEnPassantSquare = (from + to) / 2;
+                break;
+        }
+
+        updatePositionState(from,to,newEnPassantSquare,
+                            (piece.getType() == ChessPiece.PAWN) || (undoCaptures[undoDepth-1] != null));
+    }
+
+    /**
+     * takes back the packed move made last by makeMove
+     * @param move the packed move made last
+     */
+    public void unmakeMove(int move)
+    {
+        undoDepth--;
+        int        from     = PackedMove.getFrom(move);
+        int        to       = PackedMove.getTo(move);
+        ChessPiece captured = undoCaptures[undoDepth];
+
+        removePiece(to);
+        switch (PackedMove.getKind(move))
+        {
+            case PackedMove.CASTLE:
+                int rookTo = PackedMove.getRookTo(move);
+                ChessPiece rook = squares[rookTo];
+                removePiece(rookTo);
+                setPiece(rook,PackedMove.getRookFrom(move));
+                break;
+            case PackedMove.EN_PASSANT:
+                setPiece(captured,enPassantCaptureSquare(from,to));
+                break;
+            default:
+                if (captured != null) setPiece(captured,to);
+                break;
+        }
+        setPiece(undoMovers[undoDepth],from);
+
+        undoMovers[undoDepth]   = null;
+        undoCaptures[undoDepth] = null;
+        setPositionState(undoStates[undoDepth]);
+    }
+
+    // the pawn taken en passant stands beside the capturing pawn: on its row, in the column it moves to
+    private static int enPassantCaptureSquare(int from, int to)
+    {
+        return (from / NUM_COLS) * NUM_COLS + (to % NUM_COLS);
+    }
+
+    private static ChessPiece promotionPiece(PlayerColor color, int type)
+    {
+        switch (type)
+        {
+            case ChessPiece.KNIGHT: return (ChessPiece)PieceKnight.create(color);
+            case ChessPiece.BISHOP: return (ChessPiece)PieceBishop.create(color);
+            case ChessPiece.ROOK:   return (ChessPiece)PieceRook.create(color);
+            default:                return (ChessPiece)PieceQueen.create(color);
+        }
+    }
+
+    /**
+     * passes the move to the other side without moving a piece, for null-move pruning<br>
+     * - clears the en-passant square, which only the very next move could use<br>
+     * - restarts the halfmove clock: no position before a pass is compared for repetition
+     * @return packed position state before the null move, for undoNullMove
+     */
+    public long makeNullMove()
+    {
+        long positionState = getPositionState();
+        setEnPassantSquare(NO_EN_PASSANT);
+        halfmoveClock = 0;
+        setSideToMove(ChessRules.oppositeColor(sideToMove));
+        return positionState;
+    }
+
+    /**
+     * takes back a null move
+     * @param positionState packed position state returned by makeNullMove
+     */
+    public void undoNullMove(long positionState)
+    {
+        setPositionState(positionState);
+    }
+
+    /**
+     * returns a set of all the pieces on the board<br>
+     * - pieces are shared, so the set holds one piece for each type and color on the board<br>
+     * - built from the mailbox on every call: not meant for search code
+     * @return set of all pieces on the board
+     */
+    @Override
+    public Set<Piece> getPieces()
+    {
+        Set<Piece> pieceSet = new HashSet<>();
+        long remaining = occupied;
+        while (remaining != 0L)
+        {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            pieceSet.add(squares[square]);
+        }
+        return pieceSet;
+    }
+
+    /**
+     * deep-copy of this board state, for analyzing Moves offline<br>
+     * - pieces are immutable, so the copy places the same pieces
      * @return the copy of the board
      */
     @Override
     protected BoardState getCopy()
     {
         ChessBoardState newBoardState = new ChessBoardState();
-        for (Location location : pieceLocations.keySet())
+        System.arraycopy(colorDirections,0,newBoardState.colorDirections,0,colorDirections.length);
+        long remaining = occupied;
+        while (remaining != 0L)
         {
-            Piece piece = pieceLocations.get(location);
-            Location newLocation = Location.copy(location);
-            Piece newPiece = Piece.copy(piece);
-            newBoardState.setPiece(newPiece,newLocation);
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            newBoardState.setPiece(squares[square],square);
         }
+        System.arraycopy(castlingMasks,0,newBoardState.castlingMasks,0,NUM_SQUARES);
+        newBoardState.setPositionState(getPositionState());
         return newBoardState;
     }
-    
+
     /**
      * Tests if the king (of the parameter player's color) is in Check
      * @param color the Player whose king is tested in check
@@ -84,12 +834,58 @@ public class ChessBoardState extends BoardState {
     @Override
     public boolean check(PlayerColor color)
     {
-        PlayerColor playerColor   = color;
-        PlayerColor opponentColor = Properties.oppositeColor(playerColor);
-        
-        PieceKing kingPiece   = kings.get(playerColor);
-        Location kingLocation = kingLocations.get(kingPiece);
+        int kingSquare = kingSquares[color.ordinal()];
+        if (kingSquare < 0) return false;
 
-        return kingPiece.check(kingLocation,this);
+        return isSquareAttacked(kingSquare,ChessRules.oppositeColor(color));
+    }
+    
+    /**
+     * tests if any piece of a player attacks a square
+     * @param square square index to test
+     * @param byColor color of the attacking player
+     * @return true if a piece of byColor attacks the square
+     */
+    public boolean isSquareAttacked(int square, PlayerColor byColor)
+    {
+        return getAttackers(square,byColor,occupied) != 0L;
+    }
+    
+    /**
+     * gets the pieces of a player that attack a square, using the precomputed AttackTables:<br>
+     * - the attack sets of each kind of piece are looked up from the square itself,
+     *   and intersected with the attacker's pieces of that kind<br>
+     * - sliding attacks are blocked by the occupancy given, so pieces can be lifted or
+     *   added (as when a king steps away from a slider) without changing the board
+     * @param square square index to test
+     * @param byColor color of the attacking player
+     * @param occupied bitboard of the pieces that block sliding attacks
+     * @return bitboard of the squares of the attacking pieces
+     */
+    public long getAttackers(int square, PlayerColor byColor, long occupied)
+    {
+        int color = byColor.ordinal() * ChessPiece.NUM_TYPES;
+        
+        // a pawn attacks the square if the square, moving the other way, would attack the pawn
+        Direction defenderDirection = colorDirections[ChessRules.oppositeColor(byColor).ordinal()];
+        long queens = pieceBoards[color + ChessPiece.QUEEN];
+        
+        return (AttackTables.knightAttacks(square) & pieceBoards[color + ChessPiece.KNIGHT])
+             | (AttackTables.kingAttacks(square) & pieceBoards[color + ChessPiece.KING])
+             | (AttackTables.pawnAttacks(defenderDirection,square) & pieceBoards[color + ChessPiece.PAWN])
+             | (AttackTables.bishopAttacks(square,occupied) & (pieceBoards[color + ChessPiece.BISHOP] | queens))
+             | (AttackTables.rookAttacks(square,occupied) & (pieceBoards[color + ChessPiece.ROOK] | queens));
+    }
+    
+    /**
+     * tests if any piece of a player attacks a location
+     * @param location location to test
+     * @param byColor color of the attacking player
+     * @return true if a piece of byColor attacks the location
+     */
+    public boolean isSquareAttacked(Location location, PlayerColor byColor)
+    {
+        if (location == null) return false;
+        return isSquareAttacked(square(location),byColor);
     }
 }
@@ -4,7 +4,6 @@ import chess.gui.ChessGraphicsBoard;
 import chess.moves.ChessMove;
 import chess.moves.MovePromotion;
 import chess.moves.MovePromotion.PieceType;
-import chess.pieces.ChessPiece;
 import chess.pieces.PieceBishop;
 import chess.pieces.PieceKing;
 import chess.pieces.PieceKnight;
@@ -17,8 +16,6 @@ import chess.players.ChessPlayerNetwork;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import game.boardgame.BoardGame;
-import game.boardgame.BoardState;
-import game.boardgame.pieces.Piece;
 import game.boardgame.players.BoardGamePlayerHuman;
 import game.moves.Move;
 import game.network.Client;
@@ -36,8 +33,10 @@ import javax.swing.JOptionPane;
  * - establishes players, colors for players, board directions for a player<br>
  * - initializes GUI<br>
  * - initializes Network connection for client-server games<br>
- * - maintains the state of the game board and the current player's turn<br>
- * - handles the turn-based game loop
+ * - maintains the current player's turn<br>
+ * - handles the turn-based game loop<br>
+ * - the rules (board state, legal moves, end of the game) are kept by ChessRules,
+ *   which has no GUI: this class adds the players, the dialogs and the board graphics
  * 
  * @author devang
  */
@@ -46,6 +45,7 @@ public class ChessGame extends BoardGame {
     protected ChessBoardState    currentBoardState;
     protected PlayerColor        currentPlayerColor;
     protected ChessGameHistory   gameHistory;
+    protected ChessRules         rules;
 
     /**
      * not yet implemented
@@ -238,15 +238,10 @@ public class ChessGame extends BoardGame {
             initializePiecesRedControl();
         else
             initializePiecesBlackControl();
-        setPiecesProperties((ChessProperties)properties);
-    }
-    
-    private void setPiecesProperties(ChessProperties properties)
-    {
-        for (Piece piece : currentBoardState.getPieces())
-        {
-            ((ChessPiece)piece).setProperties(properties);
-        }
+        currentBoardState.setColorDirections(((ChessProperties)properties).get_RED_DIRECTION(),
+                                             ((ChessProperties)properties).get_BLACK_DIRECTION());
+        currentBoardState.initializeCastlingRights();
+        rules = ChessRules.create(currentBoardState,gameHistory);
     }
     
     private void initializePiecesBlackControl()
@@ -357,23 +352,17 @@ public class ChessGame extends BoardGame {
         if (move == null)                 return;
         if (!(move instanceof ChessMove)) return;
         
+        // only the local human is asked for a promotion piece: the CPU and network players
+        // choose theirs, and ChessRules promotes a move with none to a queen
         ChessMove chessMove = (ChessMove)move;
-        if (move instanceof MovePromotion)
+        if ((move instanceof MovePromotion) && (player instanceof ChessPlayerHuman)
+                && (((MovePromotion)move).getNewPieceType() == null))
         {
             PieceType pieceType = pawnPromotionMenu();
             ((MovePromotion)chessMove).setNewPieceType(pieceType);
         }
         
-        if (true)
-        {   // modify this code block after implementing algebraic notation usage
-            Location moveLocation = chessMove.getFromLocation();
-            ChessPiece movePiece = (ChessPiece)currentBoardState.getPiece(moveLocation);
-            gameHistory.setMostRecentMove(chessMove);
-            movePiece.setMostRecentMove(chessMove);
-            movePiece.setNumMovesMade(movePiece.getNumMovesMade()+1);
-        }
-        
-        ((ChessMove)move).commitMove(currentBoardState);
+        rules.commitMove(chessMove);
 
         togglePlayer();
 
@@ -389,19 +378,43 @@ public class ChessGame extends BoardGame {
     {
         PlayerColor winnerColor = ChessProperties.oppositeColor(currentPlayerColor);
         String winnerColorText = "";
+        String drawText = getDrawText(rules.getResult());
         String gameOverText;
         
         if (winnerColor == RED) winnerColorText = "WHITE";
         if (winnerColor == BLACK) winnerColorText = "BLACK";
         
         gameOverText = "game over: ";
-        gameOverText+= winnerColorText;
-        gameOverText+=" wins!";
+        if (drawText != null)
+        {
+            gameOverText+= drawText;
+        }
+        else
+        {
+            gameOverText+= winnerColorText;
+            gameOverText+=" wins!";
+        }
         
         boolean result = gameOverWindow(gameOverText);
         return result;
     }
     
+    /**
+     * gets the reason a finished game is drawn
+     * @param result result of the game, from ChessRules
+     * @return description of the draw, null if the game was won
+     */
+    private String getDrawText(ChessRules.Result result)
+    {
+        switch (result)
+        {
+            case STALEMATE:            return "draw by stalemate";
+            case THREEFOLD_REPETITION: return "draw by threefold repetition";
+            case FIFTY_MOVE_RULE:      return "draw by the fifty-move rule";
+            default:                   return null;
+        }
+    }
+    
     private PieceType pawnPromotionMenu()
     {
         Object[] possibleValues = { "queen", "bishop", "knight", "rook" };
@@ -441,31 +454,45 @@ public class ChessGame extends BoardGame {
      * checks if the game is over, an then displays a message if it is<br>
      * end of game established per rules of specific game and piece locations:<br>
      * - Chess ends when a King cannot legally move to another space<br>
+     * - or in a draw, when a position is reached for the third time, or after fifty
+     *   moves by each player without a capture or pawn move<br>
      * @return True if the game is over, False otherwise
      */
     @Override
     public boolean checkGameOver()
     {
-        boolean validMovePossible = false;
-
-        BoardState boardState = BoardState.copy(currentBoardState);
-        
-        for (Location location : Location.allLocations())
-        {
-            if (!boardState.isEmpty(location))
-            {
-                ChessPiece piece = (ChessPiece)boardState.getPiece(location);
-                if (piece.getColor() == currentPlayerColor)
-                {
-                    List<Move> moves = piece.getValidMoves(location,boardState,gameHistory);
-                    if (moves.size() > 0)
-                        validMovePossible = true;
-                }
-            }
-        }
-
-        return !validMovePossible;
-
+        return rules.isGameOver();
+    }
+    
+    /**
+     * gets the legal moves of the player with the current move, packed (see PackedMove)<br>
+     * - the moves are generated once per position by ChessRules, and shared by the GUI and the AI
+     * @return newly-created array of the packed legal moves, empty if there are none
+     */
+    public int[] getLegalMoves()
+    {
+        return rules.getLegalMoves();
+    }
+    
+    /**
+     * gets the legal moves of a piece of the player with the current move, from the
+     * moves of the position (see getLegalMoves)
+     * @param location location of the piece to move
+     * @return List of legal moves, a promotion once with the new piece left to choose;
+     *         empty if the piece is not the current player's
+     */
+    public List<Move> getLegalMoves(Location location)
+    {
+        return rules.getLegalMoves(location);
+    }
+    
+    /**
+     * gets the rules of this game: the GUI-free core that keeps the board state
+     * @return rules of the game
+     */
+    public ChessRules getRules()
+    {
+        return rules;
     }
         
     /**
@@ -2,15 +2,29 @@ package chess;
 
 import chess.moves.ChessMove;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- *
+ * history of a Chess game<br>
+ * - keeps the hash key of every position of the game, with its halfmove clock, on a
+ *   stack: the game pushes each position as it is reached, starting from the setup<br>
+ * - answers the draw rules from the stack: threefold repetition, and the fifty-move rule<br>
+ * - the search reads the keys of the positions before its root, to find repetitions
+ *   of positions played earlier in the game
  * @author devang
  */
 public class ChessGameHistory {
+    public static final int FIFTY_MOVE_PLIES = 100; // fifty moves by each player
+
+    private static final int INITIAL_CAPACITY = 128;
+
     List<String> gameHistory;
     private int numMovesMade;
+
+    private long[] positionKeys;   // hash key of each position, oldest first
+    private int[]  halfmoveClocks; // halfmove clock of each position
+    private int    numPositions;
     
     // remove this after implementing using algebraic chess notation//
     private ChessMove mostRecentMove = null;                        //
@@ -37,6 +51,97 @@ public class ChessGameHistory {
     {
         gameHistory = new ArrayList<>();
         numMovesMade = 0;
+        positionKeys   = new long[INITIAL_CAPACITY];
+        halfmoveClocks = new int[INITIAL_CAPACITY];
+        numPositions   = 0;
+    }
+    
+    /**
+     * returns a copy of the positions of a game history, that the game can go on adding to
+     * while a search on another thread reads the copy
+     * @param gameHistory game history of which to copy the positions
+     * @return newly-created game history, with the same positions
+     */
+    public static ChessGameHistory copy(ChessGameHistory gameHistory)
+    {
+        ChessGameHistory newGameHistory = new ChessGameHistory();
+        newGameHistory.positionKeys   = Arrays.copyOf(gameHistory.positionKeys,gameHistory.positionKeys.length);
+        newGameHistory.halfmoveClocks = Arrays.copyOf(gameHistory.halfmoveClocks,gameHistory.halfmoveClocks.length);
+        newGameHistory.numPositions   = gameHistory.numPositions;
+        return newGameHistory;
+    }
+
+    /**
+     * pushes a position reached in the game onto the stack of positions
+     * @param boardState state of the board after the move that reached it
+     */
+    public void addPosition(ChessBoardState boardState)
+    {
+        if (numPositions == positionKeys.length)
+        {
+            positionKeys   = Arrays.copyOf(positionKeys,2*numPositions);
+            halfmoveClocks = Arrays.copyOf(halfmoveClocks,2*numPositions);
+        }
+        positionKeys[numPositions]   = boardState.getHashKey();
+        halfmoveClocks[numPositions] = boardState.getHalfmoveClock();
+        numPositions++;
+    }
+    
+    /**
+     * gets the number of positions on the stack: the current position is the last
+     * @return number of positions reached in the game
+     */
+    public int getNumPositions()
+    {
+        return numPositions;
+    }
+    
+    /**
+     * gets the hash key of a position of the game
+     * @param index index of the position, 0 for the setup
+     * @return hash key of the position
+     */
+    public long getPositionKey(int index)
+    {
+        return positionKeys[index];
+    }
+    
+    /**
+     * counts the earlier occurrences of the current position<br>
+     * - only positions with the same side to move since the last capture or pawn move
+     *   are compared: nothing before them can be reached again
+     * @return number of times the current position was reached before
+     */
+    public int countRepetitions()
+    {
+        int last = numPositions - 1;
+        if (last < 0) return 0;
+        
+        int count = 0;
+        int first = Math.max(0,last - halfmoveClocks[last]);
+        for (int index = last - 2; index >= first; index -= 2)
+        {
+            if (positionKeys[index] == positionKeys[last]) count++;
+        }
+        return count;
+    }
+    
+    /**
+     * tests if the current position has been reached three times
+     * @return true if the game is drawn by threefold repetition
+     */
+    public boolean isThreefoldRepetition()
+    {
+        return countRepetitions() >= 2;
+    }
+    
+    /**
+     * tests if fifty moves by each player have passed without a capture or pawn move
+     * @return true if the game is drawn by the fifty-move rule
+     */
+    public boolean isFiftyMoveDraw()
+    {
+        return (numPositions > 0) && (halfmoveClocks[numPositions-1] >= FIFTY_MOVE_PLIES);
     }
     
     public void addHistory(String item)
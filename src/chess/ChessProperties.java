@@ -32,7 +32,7 @@ public class ChessProperties extends Properties {
     
     private static final int BOARD_MARGIN = 0;
     
-    public static final PlayerColor INITIAL_PLAYER_COLOR = PlayerColor.RED;
+    public static final PlayerColor INITIAL_PLAYER_COLOR = ChessRules.INITIAL_PLAYER_COLOR;
     
     public static final Color RED_PIECE_GRAPHICS_COLOR        = RED;
     public static final Color BLACK_PIECE_GRAPHICS_COLOR      = BLACK;
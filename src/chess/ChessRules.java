@@ -0,0 +1,205 @@
+package chess;
+
+import chess.moves.ChessMove;
+import chess.moves.MovePromotion;
+import chess.moves.MovePromotion.PieceType;
+import chess.moves.PackedMove;
+import game.moves.Move;
+import game.utility.Location;
+import game.utility.Properties.PlayerColor;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * rules and turn flow of a Chess game, with no GUI: the core a game is played through,
+ * in a window or on a headless server<br>
+ * - holds the official board state and the game history, and commits moves to them<br>
+ * - keeps the legal moves of the side to move, generated once per position when first
+ *   asked for, and shared by the GUI and the AI<br>
+ * - finds the end of the game: checkmate, stalemate, threefold repetition, fifty-move rule<br>
+ * - with the board state, the move generator and the AI (chess.players.ai), it uses no AWT
+ *   or Swing type, nor ChessProperties (which holds the GUI's colors): it runs with
+ *   java.awt.headless=true, and ChessGame is the GUI's client of it<br>
+ * - a promotion committed with no piece chosen promotes to a queen
+ * @author devang
+ */
+public class ChessRules {
+    public static final int NUM_ROWS = 8;
+    public static final int NUM_COLS = 8;
+
+    public static final PlayerColor INITIAL_PLAYER_COLOR = PlayerColor.RED;
+
+    public enum Result {
+        IN_PROGRESS,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE
+    }
+
+    private final ChessBoardState  boardState;
+    private final ChessGameHistory gameHistory;
+
+    // legal moves of the side to move, packed, generated once per position when first asked for
+    private final int[] legalMoves    = new int[MoveGenerator.MAX_MOVES];
+    private int         numLegalMoves = -1; // -1 until generated
+    private long        legalMovesKey;      // hash key of the position they were generated for
+
+    private ChessRules(ChessBoardState boardState, ChessGameHistory gameHistory)
+    {
+        this.boardState  = boardState;
+        this.gameHistory = gameHistory;
+        gameHistory.addPosition(boardState);
+    }
+
+    /**
+     * creates the rules of a game from a position set up, in Object factory fashion
+     * @param boardState official board state of the game, with its pieces set up
+     * @param gameHistory history of the game, to which the setup position is added
+     * @return newly-created rules
+     */
+    public static ChessRules create(ChessBoardState boardState, ChessGameHistory gameHistory)
+    {
+        return new ChessRules(boardState,gameHistory);
+    }
+
+    /**
+     * creates the rules of a game from a position in Forsyth-Edwards Notation
+     * @param fen position to start from, as Fen.START_POSITION
+     * @return newly-created rules, with a new game history
+     */
+    public static ChessRules create(CharSequence fen)
+    {
+        return new ChessRules(Fen.create(fen),new ChessGameHistory());
+    }
+
+    /**
+     * gets the color of the other player
+     * @param color color of a player
+     * @return color of the opponent
+     */
+    public static PlayerColor oppositeColor(PlayerColor color)
+    {
+        return (color == PlayerColor.RED) ? PlayerColor.BLACK : PlayerColor.RED;
+    }
+
+    /**
+     * gets the official state of the board: moves are only committed to it through this
+     * @return board state of the game
+     */
+    public ChessBoardState getBoardState()
+    {
+        return boardState;
+    }
+
+    /**
+     * gets the history of the game
+     * @return game history, with every position reached
+     */
+    public ChessGameHistory getGameHistory()
+    {
+        return gameHistory;
+    }
+
+    /**
+     * gets the color of the player who has the next move
+     * @return color of the side to move
+     */
+    public PlayerColor getSideToMove()
+    {
+        return boardState.getSideToMove();
+    }
+
+    /**
+     * gets the legal moves of the side to move, packed (see PackedMove)<br>
+     * - the moves are generated once per position, and shared by the GUI and the AI
+     * @return newly-created array of the packed legal moves, empty if there are none
+     */
+    public int[] getLegalMoves()
+    {
+        if (!hasLegalMoves())
+        {
+            numLegalMoves = MoveGenerator.generateMoves(boardState,boardState.getSideToMove(),legalMoves);
+            legalMovesKey = boardState.getHashKey();
+        }
+        return Arrays.copyOf(legalMoves,numLegalMoves);
+    }
+
+    /**
+     * gets the legal moves of a piece of the side to move, from the moves of the position
+     * @param location location of the piece to move
+     * @return List of legal moves, a promotion once with the new piece left to choose;
+     *         empty if the piece is not the side to move's
+     */
+    public List<Move> getLegalMoves(Location location)
+    {
+        int[] moves = getLegalMoves();
+        return MoveGenerator.selectMoves(moves,moves.length,location);
+    }
+
+    private boolean hasLegalMoves()
+    {
+        return (numLegalMoves >= 0) && (legalMovesKey == boardState.getHashKey());
+    }
+
+    /**
+     * tests if the side to move has a legal move: from the cached moves if the position's
+     * are generated, otherwise stopping at the first piece that has one
+     * @return true if the side to move can move
+     */
+    public boolean hasLegalMove()
+    {
+        if (hasLegalMoves()) return numLegalMoves > 0;
+        return MoveGenerator.hasAnyLegalMove(boardState,boardState.getSideToMove());
+    }
+
+    /**
+     * commits a move of the side to move to the board state, and records the position reached
+     * @param move legal move of the side to move; a promotion with no piece chosen promotes to a queen
+     */
+    public void commitMove(ChessMove move)
+    {
+        if ((move instanceof MovePromotion) && (((MovePromotion)move).getNewPieceType() == null))
+            ((MovePromotion)move).setNewPieceType(PieceType.QUEEN);
+
+        // modify this after implementing algebraic notation usage
+        gameHistory.setMostRecentMove(move);
+
+        move.commitMove(boardState);
+        gameHistory.addPosition(boardState);
+    }
+
+    /**
+     * commits a packed move of the side to move to the board state<br>
+     * - the move is committed as a ChessMove, so a game of any length can be played
+     * @param move packed legal move of the side to move
+     */
+    public void commitMove(int move)
+    {
+        commitMove(PackedMove.toChessMove(move));
+    }
+
+    /**
+     * tests if the game is over: the side to move can not move, or the game is drawn
+     * by threefold repetition or by the fifty-move rule
+     * @return true if the game is over
+     */
+    public boolean isGameOver()
+    {
+        return getResult() != Result.IN_PROGRESS;
+    }
+
+    /**
+     * gets how the game stands<br>
+     * - a checkmate on the move that reaches a draw rule still wins
+     * @return CHECKMATE (the side to move lost), a draw, or IN_PROGRESS
+     */
+    public Result getResult()
+    {
+        if (!hasLegalMove())
+            return boardState.check(boardState.getSideToMove()) ? Result.CHECKMATE : Result.STALEMATE;
+        if (gameHistory.isThreefoldRepetition()) return Result.THREEFOLD_REPETITION;
+        if (gameHistory.isFiftyMoveDraw())       return Result.FIFTY_MOVE_RULE;
+        return Result.IN_PROGRESS;
+    }
+}
@@ -0,0 +1,253 @@
+package chess;
+
+import static chess.ChessRules.NUM_COLS;
+import static chess.ChessRules.NUM_ROWS;
+import chess.pieces.ChessPiece;
+import chess.pieces.PieceBishop;
+import chess.pieces.PieceKing;
+import chess.pieces.PieceKnight;
+import chess.pieces.PiecePawn;
+import chess.pieces.PieceQueen;
+import chess.pieces.PieceRook;
+import game.utility.Properties.Direction;
+import game.utility.Properties.PlayerColor;
+
+/**
+ * reads and writes Chess positions in Forsyth-Edwards Notation (FEN):<br>
+ * - piece placement from rank 8 down, side to move, castling rights, en-passant square,
+ *   halfmove clock and fullmove number; the two clocks may be left off when reading<br>
+ * - a FEN is read into an existing board state, which is cleared first: the text is
+ *   scanned one character at a time and the shared pieces are placed, so nothing is
+ *   allocated for a position, and one board state can be reused for a stream of them<br>
+ * - the board state read is set up with RED (white) moving up the board, from row
+ *   NUM_ROWS-1; a board state with RED moving down (the game's board when the local
+ *   player has BLACK) is turned around when it is written, so its FEN is the standard one<br>
+ * - castling rights in a FEN are only kept for a king and rook on their home squares
+ * @author devang
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // letters of the pieces, indexed by ChessBoardState.pieceIndex: upper case for RED (white)
+    private static final String       PIECE_LETTERS = "PNBRQKpnbrqk";
+    private static final ChessPiece[] PIECES        = new ChessPiece[PIECE_LETTERS.length()];
+
+    static
+    {
+        for (PlayerColor color : PlayerColor.values())
+        {
+            PIECES[ChessBoardState.pieceIndex(color,ChessPiece.PAWN)]   = (ChessPiece)PiecePawn.create(color);
+            PIECES[ChessBoardState.pieceIndex(color,ChessPiece.KNIGHT)] = (ChessPiece)PieceKnight.create(color);
+            PIECES[ChessBoardState.pieceIndex(color,ChessPiece.BISHOP)] = (ChessPiece)PieceBishop.create(color);
+            PIECES[ChessBoardState.pieceIndex(color,ChessPiece.ROOK)]   = (ChessPiece)PieceRook.create(color);
+            PIECES[ChessBoardState.pieceIndex(color,ChessPiece.QUEEN)]  = (ChessPiece)PieceQueen.create(color);
+            PIECES[ChessBoardState.pieceIndex(color,ChessPiece.KING)]   = (ChessPiece)PieceKing.create(color);
+        }
+    }
+
+    private Fen() { }
+
+    /**
+     * creates a board state from a FEN
+     * @param fen position in Forsyth-Edwards Notation
+     * @return newly-created board state, RED moving up
+     * @throws IllegalArgumentException if the FEN is not valid
+     */
+    public static ChessBoardState create(CharSequence fen)
+    {
+        ChessBoardState boardState = new ChessBoardState();
+        read(fen,boardState);
+        return boardState;
+    }
+
+    /**
+     * sets up a board state from a FEN, replacing the position it holds
+     * @param fen position in Forsyth-Edwards Notation
+     * @param boardState board state to set up: it is cleared, and RED set to move up
+     * @throws IllegalArgumentException if the FEN is not valid; the board state is then left cleared
+     */
+    public static void read(CharSequence fen, ChessBoardState boardState)
+    {
+        boardState.clear();
+        boardState.setColorDirections(Direction.UP,Direction.DOWN);
+
+        // piece placement: squares are numbered as the FEN lists them, top-left first
+        int index  = skipSpaces(fen,0);
+        int square = 0;
+        int rowEnd = NUM_COLS;
+        for (; (index < fen.length()) && !isSpace(fen.charAt(index)); index++)
+        {
+            char c = fen.charAt(index);
+            if (c == '/')
+            {
+                if ((square != rowEnd) || (rowEnd == ChessBoardState.NUM_SQUARES))
+                    throw invalid(fen,"row of the wrong length");
+                rowEnd += NUM_COLS;
+            }
+            else if ((c >= '1') && (c <= '8'))
+            {
+                square += c - '0';
+                if (square > rowEnd) throw invalid(fen,"row of the wrong length");
+            }
+            else
+            {
+                int piece = PIECE_LETTERS.indexOf(c);
+                if (piece < 0)          throw invalid(fen,"not a piece: " + c);
+                if (square >= rowEnd)   throw invalid(fen,"row of the wrong length");
+                boardState.setPiece(PIECES[piece],square++);
+            }
+        }
+        if (square != ChessBoardState.NUM_SQUARES) throw invalid(fen,"wrong number of squares");
+
+        // side to move
+        index = skipSpaces(fen,index);
+        if (index >= fen.length()) throw invalid(fen,"no side to move");
+        char side = fen.charAt(index++);
+        if ((side != 'w') && (side != 'b')) throw invalid(fen,"side to move is not w or b");
+        boardState.setSideToMove((side == 'w') ? PlayerColor.RED : PlayerColor.BLACK);
+
+        // castling rights: only those the kings and rooks on their home squares still allow
+        index = skipSpaces(fen,index);
+        int rights = ChessBoardState.NO_CASTLING;
+        for (; (index < fen.length()) && !isSpace(fen.charAt(index)); index++)
+        {
+            switch (fen.charAt(index))
+            {
+                case 'K': rights |= ChessBoardState.RED_RIGHT_CASTLE;   break;
+                case 'Q': rights |= ChessBoardState.RED_LEFT_CASTLE;    break;
+                case 'k': rights |= ChessBoardState.BLACK_RIGHT_CASTLE; break;
+                case 'q': rights |= ChessBoardState.BLACK_LEFT_CASTLE;  break;
+                case '-': break;
+                default:  throw invalid(fen,"not a castling right: " + fen.charAt(index));
+            }
+        }
+        boardState.initializeCastlingRights();
+        boardState.setCastlingRights(rights & boardState.getCastlingRights());
+
+        // en-passant square
+        index = skipSpaces(fen,index);
+        if ((index < fen.length()) && (fen.charAt(index) != '-'))
+        {
+            if (index + 1 >= fen.length()) throw invalid(fen,"not a square");
+            int col = fen.charAt(index) - 'a';
+            int row = NUM_ROWS - (fen.charAt(index+1) - '0');
+            if ((col < 0) || (col >= NUM_COLS) || (row < 0) || (row >= NUM_ROWS)) throw invalid(fen,"not a square");
+            boardState.setEnPassantSquare(row * NUM_COLS + col);
+            index += 2;
+        }
+        else
+        {
+            index++;
+        }
+
+        // halfmove clock and fullmove number, if given
+        index = skipSpaces(fen,index);
+        if (index < fen.length())
+        {
+            int clock = 0;
+            for (; (index < fen.length()) && !isSpace(fen.charAt(index)); index++)
+                clock = 10 * clock + digit(fen,index);
+            boardState.setHalfmoveClock(clock);
+
+            index = skipSpaces(fen,index);
+            if (index < fen.length())
+            {
+                int number = 0;
+                for (; (index < fen.length()) && !isSpace(fen.charAt(index)); index++)
+                    number = 10 * number + digit(fen,index);
+                boardState.setFullmoveNumber(Math.max(number,1));
+            }
+        }
+    }
+
+    /**
+     * writes the FEN of a board state
+     * @param boardState state of the board to write
+     * @return position in Forsyth-Edwards Notation
+     */
+    public static String write(ChessBoardState boardState)
+    {
+        StringBuilder fen = new StringBuilder(90);
+        write(boardState,fen);
+        return fen.toString();
+    }
+
+    /**
+     * appends the FEN of a board state to a StringBuilder, which can be reused from position to position
+     * @param boardState state of the board to write
+     * @param fen builder to append the position to, in Forsyth-Edwards Notation
+     */
+    public static void write(ChessBoardState boardState, StringBuilder fen)
+    {
+        // the FEN is written for RED moving up: a board with RED moving down is turned around
+        boolean turned = (boardState.getColorDirection(PlayerColor.RED) == Direction.DOWN);
+
+        for (int row = 0; row < NUM_ROWS; row++)
+        {
+            if (row > 0) fen.append('/');
+            int empty = 0;
+            for (int col = 0; col < NUM_COLS; col++)
+            {
+                int        square = row * NUM_COLS + col;
+                ChessPiece piece  = boardState.getPiece(turned ? (ChessBoardState.NUM_SQUARES - 1 - square) : square);
+                if (piece == null)
+                {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) fen.append((char)('0' + empty));
+                empty = 0;
+                fen.append(PIECE_LETTERS.charAt(ChessBoardState.pieceIndex(piece.getColor(),piece.getType())));
+            }
+            if (empty > 0) fen.append((char)('0' + empty));
+        }
+
+        fen.append((boardState.getSideToMove() == PlayerColor.RED) ? " w " : " b ");
+
+        // the king's side is to the right of RED's king only when RED moves up
+        int rights = boardState.getCastlingRights();
+        int length = fen.length();
+        if ((rights & (turned ? ChessBoardState.RED_LEFT_CASTLE : ChessBoardState.RED_RIGHT_CASTLE)) != 0)     fen.append('K');
+        if ((rights & (turned ? ChessBoardState.RED_RIGHT_CASTLE : ChessBoardState.RED_LEFT_CASTLE)) != 0)     fen.append('Q');
+        if ((rights & (turned ? ChessBoardState.BLACK_LEFT_CASTLE : ChessBoardState.BLACK_RIGHT_CASTLE)) != 0) fen.append('k');
+        if ((rights & (turned ? ChessBoardState.BLACK_RIGHT_CASTLE : ChessBoardState.BLACK_LEFT_CASTLE)) != 0) fen.append('q');
+        if (fen.length() == length) fen.append('-');
+
+        int enPassantSquare = boardState.getEnPassantSquare();
+        if (enPassantSquare == ChessBoardState.NO_EN_PASSANT)
+        {
+            fen.append(" -");
+        }
+        else
+        {
+            if (turned) enPassantSquare = ChessBoardState.NUM_SQUARES - 1 - enPassantSquare;
+            fen.append(' ').append((char)('a' + enPassantSquare % NUM_COLS))
+               .append((char)('0' + NUM_ROWS - enPassantSquare / NUM_COLS));
+        }
+
+        fen.append(' ').append(boardState.getHalfmoveClock()).append(' ').append(boardState.getFullmoveNumber());
+    }
+
+    private static boolean isSpace(char c)
+    {
+        return c <= ' ';
+    }
+
+    private static int skipSpaces(CharSequence fen, int index)
+    {
+        while ((index < fen.length()) && isSpace(fen.charAt(index))) index++;
+        return index;
+    }
+
+    private static int digit(CharSequence fen, int index)
+    {
+        char c = fen.charAt(index);
+        if ((c < '0') || (c > '9')) throw invalid(fen,"not a number");
+        return c - '0';
+    }
+
+    private static IllegalArgumentException invalid(CharSequence fen, String reason)
+    {
+        return new IllegalArgumentException("invalid FEN (" + reason + "): " + fen);
+    }
+}
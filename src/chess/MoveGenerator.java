@@ -0,0 +1,367 @@
+package chess;
+
+import static chess.ChessRules.NUM_COLS;
+import static chess.ChessRules.NUM_ROWS;
+import chess.moves.MovePromotion;
+import chess.moves.PackedMove;
+import chess.pieces.ChessPiece;
+import game.moves.Move;
+import game.utility.Location;
+import game.utility.Properties.Direction;
+import game.utility.Properties.PlayerColor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * generates legal Chess moves straight from the bitboards of a ChessBoardState<br>
+ * - the checkers of the king, and the pieces pinned to it, are found once per position:<br>
+ *   * in double check, only the king may move<br>
+ *   * in single check, other pieces may only capture the checker or block its ray<br>
+ *   * a pinned piece may only move along the line through its king and the pinning piece<br>
+ * - king moves are tested against the attackers of the destination, with the king lifted off
+ *   the board so it can not hide behind itself from a slider<br>
+ * - castling needs its right in the board state, an empty path to the rook, and no attack on
+ *   the squares the king starts from and crosses<br>
+ * - only en-passant, which removes two pieces from a row, is tested by making it and undoing it<br>
+ * - moves are generated as packed moves (see PackedMove) into an int array supplied by the
+ *   caller, so a search can reuse one array per ply; the List methods create ChessMove
+ *   objects from them, for the game and the pieces
+ * @author devang
+ */
+public final class MoveGenerator {
+    // what to generate: every move, every move of a piece with the promotion left to the player,
+    // or captures and queen promotions only
+    private static final int ALL_MOVES     = 0;
+    private static final int PLAYER_MOVES  = 1;
+    private static final int CAPTURES      = 2;
+    private static final int ANY_MOVE      = 3; // stops at the first piece with a legal move
+
+    private static final long ALL_SQUARES = -1L;
+
+    private static final int[] PROMOTION_TYPES = { ChessPiece.QUEEN, ChessPiece.ROOK, ChessPiece.BISHOP, ChessPiece.KNIGHT };
+
+    // more than the most legal moves any Chess position has (218)
+    public static final int MAX_MOVES = 256;
+
+    // moves of the first piece found by hasAnyLegalMove, one array per thread, reused from call to call
+    private static final ThreadLocal<int[]> ANY_MOVE_BUFFER = ThreadLocal.withInitial(() -> new int[MAX_MOVES]);
+
+    private MoveGenerator() { }
+
+    /**
+     * generates all legal moves of a player, packed<br>
+     * - a promotion is generated once for each piece the pawn can become
+     * @param boardState state of the board to analyze
+     * @param color color of the player to move
+     * @param moves array of at least MAX_MOVES entries, filled with packed moves from index 0
+     * @return number of legal moves
+     */
+    public static int generateMoves(ChessBoardState boardState, PlayerColor color, int[] moves)
+    {
+        return generate(boardState,color,ALL_SQUARES,ALL_MOVES,moves);
+    }
+
+    /**
+     * generates the legal captures of a player, packed, for a quiescence search<br>
+     * - includes en-passant and promotions, which only promote to a queen
+     * @param boardState state of the board to analyze
+     * @param color color of the player to move
+     * @param moves array of at least MAX_MOVES entries, filled with packed moves from index 0
+     * @return number of legal captures and promotions
+     */
+    public static int generateCaptures(ChessBoardState boardState, PlayerColor color, int[] moves)
+    {
+        return generate(boardState,color,ALL_SQUARES,CAPTURES,moves);
+    }
+
+    /**
+     * tests if a player has a legal move, to detect the end of a game<br>
+     * - moves are generated piece by piece, the king first, and generation stops at the
+     *   first piece that has one: no List is built, the board is not copied, and the
+     *   moves are written to an array kept for the thread, so nothing is allocated
+     * @param boardState state of the board to analyze
+     * @param color color of the player to move
+     * @return true if the player has at least one legal move
+     */
+    public static boolean hasAnyLegalMove(ChessBoardState boardState, PlayerColor color)
+    {
+        return generate(boardState,color,ALL_SQUARES,ANY_MOVE,ANY_MOVE_BUFFER.get()) > 0;
+    }
+
+    /**
+     * generates all legal moves of a player<br>
+     * - a promotion is generated once for each piece the pawn can become
+     * @param boardState state of the board to analyze
+     * @param color color of the player to move
+     * @return List of legal moves
+     */
+    public static List<Move> generateLegalMoves(ChessBoardState boardState, PlayerColor color)
+    {
+        int[] moves = new int[MAX_MOVES];
+        return toMoveList(moves,generate(boardState,color,ALL_SQUARES,ALL_MOVES,moves),ALL_MOVES);
+    }
+
+    /**
+     * generates the legal moves of the piece at a location<br>
+     * - a promotion is generated once, with the new piece left for the player to choose
+     * @param boardState state of the board to analyze
+     * @param location location of the piece to move
+     * @return List of legal moves, empty if there is no piece at the location
+     */
+    public static List<Move> generateLegalMoves(ChessBoardState boardState, Location location)
+    {
+        if ((location == null) || boardState.isEmpty(location)) return new ArrayList<>();
+
+        int[]       moves = new int[MAX_MOVES];
+        PlayerColor color = boardState.getPiece(location).getColor();
+        int         count = generate(boardState,color,1L << ChessBoardState.square(location),PLAYER_MOVES,moves);
+        return toMoveList(moves,count,PLAYER_MOVES);
+    }
+
+    /**
+     * selects the moves of the piece at a location from the packed moves of its player,
+     * as the player picks them: a promotion is listed once, with the new piece left to choose
+     * @param moves packed legal moves of the player, as from generateMoves
+     * @param count number of packed moves
+     * @param location location of the piece to move
+     * @return List of legal moves of the piece
+     */
+    public static List<Move> selectMoves(int[] moves, int count, Location location)
+    {
+        int   from     = ChessBoardState.square(location);
+        int[] selected = new int[count];
+        int   numMoves = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int move = moves[i];
+            if (PackedMove.getFrom(move) != from) continue;
+            if ((PackedMove.getKind(move) == PackedMove.PROMOTION)
+                    && (PackedMove.getPromotionType(move) != ChessPiece.QUEEN)) continue;
+            selected[numMoves++] = move;
+        }
+        return toMoveList(selected,numMoves,PLAYER_MOVES);
+    }
+
+    // creates the ChessMoves of packed moves: a player's promotions are left without a new piece
+    private static List<Move> toMoveList(int[] moves, int count, int mode)
+    {
+        List<Move> moveList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            Move move = PackedMove.toChessMove(moves[i]);
+            if ((mode == PLAYER_MOVES) && (move instanceof MovePromotion))
+                ((MovePromotion)move).setNewPieceType(null);
+            moveList.add(move);
+        }
+        return moveList;
+    }
+
+    private static int generate(ChessBoardState boardState, PlayerColor color, long fromSquares, int mode, int[] moves)
+    {
+        int count = 0;
+        PlayerColor opponentColor = ChessRules.oppositeColor(color);
+        long ours     = boardState.getColorBoard(color);
+        long theirs   = boardState.getColorBoard(opponentColor);
+        long occupied = boardState.getOccupied();
+        long targets  = (mode == CAPTURES) ? theirs : ~ours;
+
+        long checkMask = ALL_SQUARES;
+        long pinned    = 0L;
+        int  kingSquare = boardState.getKingSquare(color);
+        if (kingSquare >= 0)
+        {
+            long kingBit  = 1L << kingSquare;
+            long checkers = boardState.getAttackers(kingSquare,opponentColor,occupied);
+
+            if ((fromSquares & kingBit) != 0L)
+            {
+                long kingTargets = AttackTables.kingAttacks(kingSquare) & targets;
+                while (kingTargets != 0L)
+                {
+                    int to = Long.numberOfTrailingZeros(kingTargets);
+                    kingTargets &= kingTargets - 1;
+                    if (boardState.getAttackers(to,opponentColor,occupied ^ kingBit) == 0L)
+                        moves[count++] = PackedMove.of(kingSquare,to,PackedMove.NORMAL);
+                }
+                if ((mode == ANY_MOVE) && (count > 0)) return count;
+
+                if ((checkers == 0L) && (mode != CAPTURES))
+                    count = generateCastles(boardState,color,kingSquare,moves,count);
+            }
+
+            if (Long.bitCount(checkers) > 1) return count;
+            if (checkers != 0L)
+                checkMask = checkers | AttackTables.between(kingSquare,Long.numberOfTrailingZeros(checkers));
+
+            pinned = findPinned(boardState,color,kingSquare);
+            fromSquares &= ~kingBit;
+        }
+
+        long pieceSquares = ours & fromSquares;
+        while (pieceSquares != 0L)
+        {
+            if ((mode == ANY_MOVE) && (count > 0)) return count;
+
+            int from = Long.numberOfTrailingZeros(pieceSquares);
+            pieceSquares &= pieceSquares - 1;
+
+            long allowed = checkMask;
+            if ((pinned & (1L << from)) != 0L) allowed &= AttackTables.line(kingSquare,from);
+
+            ChessPiece piece = boardState.getPiece(from);
+            long attacks;
+            switch (piece.getType())
+            {
+                case ChessPiece.PAWN:
+                    count = generatePawnMoves(boardState,color,from,allowed,mode,moves,count);
+                    continue;
+                case ChessPiece.KNIGHT:
+                    attacks = AttackTables.knightAttacks(from);
+                    break;
+                case ChessPiece.BISHOP:
+                    attacks = AttackTables.bishopAttacks(from,occupied);
+                    break;
+                case ChessPiece.ROOK:
+                    attacks = AttackTables.rookAttacks(from,occupied);
+                    break;
+                case ChessPiece.QUEEN:
+                    attacks = AttackTables.queenAttacks(from,occupied);
+                    break;
+                default: // a second king
+                    attacks = AttackTables.kingAttacks(from);
+                    break;
+            }
+
+            long toSquares = attacks & targets & allowed;
+            while (toSquares != 0L)
+            {
+                int to = Long.numberOfTrailingZeros(toSquares);
+                toSquares &= toSquares - 1;
+                moves[count++] = PackedMove.of(from,to,PackedMove.NORMAL);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * finds the pieces of a player that are pinned to its king: a piece is pinned if it is
+     * the only piece between the king and an opponent's slider that moves along that line
+     */
+    private static long findPinned(ChessBoardState boardState, PlayerColor color, int kingSquare)
+    {
+        PlayerColor opponentColor = ChessRules.oppositeColor(color);
+        long theirs = boardState.getColorBoard(opponentColor);
+        long queens = boardState.getPieceBoard(opponentColor,ChessPiece.QUEEN);
+
+        long snipers = (AttackTables.rookAttacks(kingSquare,theirs)
+                        & (boardState.getPieceBoard(opponentColor,ChessPiece.ROOK) | queens))
+                     | (AttackTables.bishopAttacks(kingSquare,theirs)
+                        & (boardState.getPieceBoard(opponentColor,ChessPiece.BISHOP) | queens));
+
+        long pinned = 0L;
+        while (snipers != 0L)
+        {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = AttackTables.between(kingSquare,sniper) & boardState.getOccupied();
+            if (Long.bitCount(blockers) == 1)
+                pinned |= blockers & boardState.getColorBoard(color);
+        }
+        return pinned;
+    }
+
+    private static int generatePawnMoves(ChessBoardState boardState, PlayerColor color, int from, long allowed, int mode, int[] moves, int count)
+    {
+        Direction direction = boardState.getColorDirection(color);
+        int  forward  = (direction == Direction.UP) ? -NUM_COLS : NUM_COLS;
+        int  startRow = (direction == Direction.UP) ? NUM_ROWS-2 : 1;
+        long occupied = boardState.getOccupied();
+        long attacks  = AttackTables.pawnAttacks(direction,from);
+
+        // captures
+        long captures = attacks & boardState.getColorBoard(ChessRules.oppositeColor(color)) & allowed;
+        while (captures != 0L)
+        {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            count = addPawnMove(from,to,mode,moves,count);
+        }
+
+        // pushes: only promotions count as captures
+        int to = from + forward;
+        if ((to >= 0) && (to < ChessBoardState.NUM_SQUARES) && ((occupied & (1L << to)) == 0L))
+        {
+            boolean promotion = isEndRow(to);
+            if (((allowed & (1L << to)) != 0L) && ((mode != CAPTURES) || promotion))
+                count = addPawnMove(from,to,mode,moves,count);
+
+            int to2 = to + forward;
+            if ((mode != CAPTURES) && ((from / NUM_COLS) == startRow)
+                    && ((occupied & (1L << to2)) == 0L) && ((allowed & (1L << to2)) != 0L))
+                moves[count++] = PackedMove.of(from,to2,PackedMove.NORMAL);
+        }
+
+        // en-passant: the square is only valid for the side to move
+        int enPassantSquare = boardState.getEnPassantSquare();
+        if ((enPassantSquare != ChessBoardState.NO_EN_PASSANT) && (boardState.getSideToMove() == color)
+                && ((attacks & (1L << enPassantSquare)) != 0L))
+        {
+            int move = PackedMove.of(from,enPassantSquare,PackedMove.EN_PASSANT);
+            boardState.makeMove(move);
+            boolean inCheck = boardState.check(color);
+            boardState.unmakeMove(move);
+            if (!inCheck) moves[count++] = move;
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, int mode, int[] moves, int count)
+    {
+        if (!isEndRow(to))
+            moves[count++] = PackedMove.of(from,to,PackedMove.NORMAL);
+        else if (mode != ALL_MOVES)
+            moves[count++] = PackedMove.promotion(from,to,ChessPiece.QUEEN);
+        else
+            for (int pieceType : PROMOTION_TYPES)
+                moves[count++] = PackedMove.promotion(from,to,pieceType);
+        return count;
+    }
+
+    private static boolean isEndRow(int square)
+    {
+        int row = square / NUM_COLS;
+        return (row == 0) || (row == NUM_ROWS-1);
+    }
+
+    private static int generateCastles(ChessBoardState boardState, PlayerColor color, int kingSquare, int[] moves, int count)
+    {
+        int rights   = boardState.getCastlingRights();
+        int kingRow  = kingSquare / NUM_COLS;
+        boolean red  = (color == PlayerColor.RED);
+
+        if ((rights & (red ? ChessBoardState.RED_LEFT_CASTLE : ChessBoardState.BLACK_LEFT_CASTLE)) != 0)
+            count = addCastle(boardState,color,kingSquare,kingRow * NUM_COLS,-1,moves,count);
+        if ((rights & (red ? ChessBoardState.RED_RIGHT_CASTLE : ChessBoardState.BLACK_RIGHT_CASTLE)) != 0)
+            count = addCastle(boardState,color,kingSquare,kingRow * NUM_COLS + NUM_COLS - 1,1,moves,count);
+        return count;
+    }
+
+    // the packed castle only keeps the king's squares: the rook is the one in the corner, see PackedMove
+    private static int addCastle(ChessBoardState boardState, PlayerColor color, int kingSquare, int rookSquare, int step, int[] moves, int count)
+    {
+        ChessPiece rook = boardState.getPiece(rookSquare);
+        if ((rook == null) || (rook.getType() != ChessPiece.ROOK) || (rook.getColor() != color)) return count;
+        if ((AttackTables.between(kingSquare,rookSquare) & boardState.getOccupied()) != 0L) return count;
+
+        PlayerColor opponentColor = ChessRules.oppositeColor(color);
+        int crossSquare = kingSquare + step;
+        int kingTo      = kingSquare + 2 * step;
+        if ((AttackTables.between(kingSquare,rookSquare) & (1L << kingTo)) == 0L) return count;
+        if (boardState.isSquareAttacked(crossSquare,opponentColor)) return count;
+        if (boardState.isSquareAttacked(kingTo,opponentColor)) return count;
+
+        moves[count++] = PackedMove.of(kingSquare,kingTo,PackedMove.CASTLE);
+        return count;
+    }
+}
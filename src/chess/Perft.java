@@ -0,0 +1,287 @@
+package chess;
+
+import chess.moves.ChessMove;
+import chess.moves.MovePromotion;
+import chess.moves.MovePromotion.PieceType;
+import chess.moves.PackedMove;
+import chess.pieces.ChessPiece;
+import game.boardgame.BoardState;
+import game.moves.Move;
+import game.utility.Location;
+import game.utility.Properties.PlayerColor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * perft: counts the positions at the leaves of the tree of legal moves to a fixed depth,
+ * to check the move generator against counts known from other programs, and to time it<br>
+ * - by default, moves are generated packed by MoveGenerator and made with
+ *   ChessBoardState.makeMove, as the search does<br>
+ * - with -pieces, they are generated by each piece's ChessPiece.getValidMoves and made
+ *   with the ChessMove objects (MoveRegular, MoveCastle, MoveEnPassant, MovePromotion),
+ *   as the game does; a promotion is counted once for each piece the pawn can become<br>
+ * - with -divide, the count below each root move is listed: comparing those with another
+ *   program's narrows a wrong count down to the move that hides it<br>
+ * - with -threads, the root moves are split across threads, each on its own board copy<br>
+ * - with no position given, the standard positions are counted and checked;
+ *   the exit status is 1 if any count is wrong<br>
+ * - run with: java chess.Perft [-divide] [-pieces] [-threads n] [fen|startpos depth]
+ * @author devang
+ */
+public final class Perft {
+    // the standard positions, and their counts at depth 1, 2, 3...
+    private static final String[] SUITE_POSITIONS = {
+        Fen.START_POSITION,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    };
+    private static final long[][] SUITE_COUNTS = {
+        { 20, 400, 8902, 197281, 4865609 },
+        { 48, 2039, 97862, 4085603 },
+        { 14, 191, 2812, 43238, 674624 },
+        { 6, 264, 9467, 422333 },
+        { 44, 1486, 62379, 2103487 },
+        { 46, 2079, 89890, 3894594 }
+    };
+
+    private static final PieceType[] PROMOTION_TYPES = { PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT };
+
+    private final ChessBoardState boardState;
+    private final boolean         pieces;
+    private final int[][]         moveStack; // packed moves, one array per depth
+
+    private Perft(ChessBoardState boardState, boolean pieces, int depth)
+    {
+        this.boardState = boardState;
+        this.pieces     = pieces;
+        moveStack = new int[depth + 1][MoveGenerator.MAX_MOVES];
+    }
+
+    public static void main(String[] args)
+    {
+        boolean divide  = false;
+        boolean pieces  = false;
+        int     threads = 1;
+        List<String> position = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-divide"))       divide  = true;
+            else if (args[i].equals("-pieces"))  pieces  = true;
+            else if (args[i].equals("-threads")) threads = Integer.parseInt(args[++i]);
+            else                                 position.add(args[i]);
+        }
+
+        if (position.isEmpty())
+        {
+            boolean passed = true;
+            for (int i = 0; i < SUITE_POSITIONS.length; i++)
+            {
+                long[] counts = SUITE_COUNTS[i];
+                System.out.println(SUITE_POSITIONS[i]);
+                for (int depth = 1; depth <= counts.length; depth++)
+                    passed &= run(SUITE_POSITIONS[i],depth,counts[depth-1],divide && (depth == counts.length),pieces,threads);
+            }
+            System.out.println(passed ? "all counts match" : "COUNTS DIFFER");
+            if (!passed) System.exit(1);
+        }
+        else
+        {
+            String fen   = position.get(0).equals("startpos") ? Fen.START_POSITION : position.get(0);
+            int    depth = (position.size() > 1) ? Integer.parseInt(position.get(1)) : 1;
+            run(fen,depth,-1L,divide,pieces,threads);
+        }
+    }
+
+    /**
+     * counts the leaves below a position, and prints the count and the rate
+     * @param fen position to count from, in Forsyth-Edwards Notation
+     * @param depth depth of the leaves, in plies
+     * @param expected known count, -1 if none
+     * @param divide true to print the count below each root move
+     * @param pieces true to generate and make moves as the game does, false as the search does
+     * @param threads number of threads to split the root moves across
+     * @return false if the count differs from the known count
+     */
+    public static boolean run(String fen, int depth, long expected, boolean divide, boolean pieces, int threads)
+    {
+        ChessBoardState boardState = Fen.create(fen);
+
+        long   start    = System.nanoTime();
+        long[] counts   = divide(boardState,depth,pieces,threads);
+        long   elapsed  = System.nanoTime() - start;
+        int[]  moves    = new int[MoveGenerator.MAX_MOVES];
+        int    numMoves = new Perft(boardState,pieces,depth).generate(moves);
+
+        long nodes = 0L;
+        for (int i = 0; i < numMoves; i++)
+        {
+            nodes += counts[i];
+            if (divide) System.out.println("  " + PackedMove.toNotation(moves[i]) + ": " + counts[i]);
+        }
+
+        boolean passed = (expected < 0L) || (nodes == expected);
+        System.out.printf("  depth %2d %12d nodes %8.0f ms %8.2f Mnps%s%n",depth,nodes,elapsed / 1e6,
+                          nodes * 1e3 / Math.max(elapsed,1L),
+                          (expected < 0L) ? "" : (passed ? "  ok" : "  expected " + expected));
+        return passed;
+    }
+
+    /**
+     * counts the leaves below each legal move of a position
+     * @param boardState state of the board to count from: it is not changed
+     * @param depth depth of the leaves, in plies from the position
+     * @param pieces true to generate and make moves as the game does, false as the search does
+     * @param threads number of threads to split the root moves across
+     * @return count below each move, in the order MoveGenerator.generateMoves lists them
+     */
+    public static long[] divide(ChessBoardState boardState, int depth, boolean pieces, int threads)
+    {
+        int[]  moves    = new int[MoveGenerator.MAX_MOVES];
+        int    numMoves = new Perft(boardState,pieces,depth).generate(moves);
+        long[] counts   = new long[numMoves];
+        if (depth < 1) return counts;
+
+        if (threads <= 1)
+        {
+            Perft perft = new Perft((ChessBoardState)BoardState.copy(boardState),pieces,depth);
+            for (int i = 0; i < numMoves; i++)
+                counts[i] = perft.countMove(moves[i],depth);
+            return counts;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>(numMoves);
+            for (int i = 0; i < numMoves; i++)
+            {
+                int move = moves[i];
+                results.add(pool.submit(() ->
+                    new Perft((ChessBoardState)BoardState.copy(boardState),pieces,depth).countMove(move,depth)));
+            }
+            for (int i = 0; i < numMoves; i++)
+                counts[i] = results.get(i).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("perft interrupted",ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("perft failed",ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return counts;
+    }
+
+    // counts the leaves below a root move, made as a ChessMove when counting as the game does
+    private long countMove(int move, int depth)
+    {
+        if (!pieces)
+        {
+            boardState.makeMove(move);
+            long nodes = count(depth-1);
+            boardState.unmakeMove(move);
+            return nodes;
+        }
+
+        Move chessMove = PackedMove.toChessMove(move);
+        chessMove.commitMove(boardState);
+        long nodes = countPieces(depth-1);
+        chessMove.undoMove(boardState);
+        return nodes;
+    }
+
+    private long count(int depth)
+    {
+        if (depth == 0) return 1L;
+
+        int[] moves    = moveStack[depth];
+        int   numMoves = MoveGenerator.generateMoves(boardState,boardState.getSideToMove(),moves);
+        if (depth == 1) return numMoves;
+
+        long nodes = 0L;
+        for (int i = 0; i < numMoves; i++)
+        {
+            boardState.makeMove(moves[i]);
+            nodes += count(depth-1);
+            boardState.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    private long countPieces(int depth)
+    {
+        if (depth == 0) return 1L;
+
+        long nodes = 0L;
+        for (Move move : getValidMoves())
+        {
+            if (move instanceof MovePromotion)
+            {
+                for (PieceType pieceType : PROMOTION_TYPES)
+                {
+                    ((MovePromotion)move).setNewPieceType(pieceType);
+                    nodes += countPiecesMove(move,depth);
+                }
+            }
+            else
+            {
+                nodes += countPiecesMove(move,depth);
+            }
+        }
+        return nodes;
+    }
+
+    private long countPiecesMove(Move move, int depth)
+    {
+        if (depth == 1) return 1L;
+
+        move.commitMove(boardState);
+        long nodes = countPieces(depth-1);
+        move.undoMove(boardState);
+        return nodes;
+    }
+
+    // the moves of the side to move, from each of its pieces, as the game asks for them
+    private List<Move> getValidMoves()
+    {
+        PlayerColor color = boardState.getSideToMove();
+        List<Move>  moves = new ArrayList<>();
+        for (Location location : Location.allLocations())
+        {
+            ChessPiece piece = (ChessPiece)boardState.getPiece(location);
+            if ((piece != null) && (piece.getColor() == color))
+                moves.addAll(piece.getValidMoves(location,boardState));
+        }
+        return moves;
+    }
+
+    // the packed root moves: from the pieces when counting as the game does, one per promotion piece
+    private int generate(int[] moves)
+    {
+        if (!pieces) return MoveGenerator.generateMoves(boardState,boardState.getSideToMove(),moves);
+
+        int numMoves = 0;
+        for (Move move : getValidMoves())
+        {
+            if (move instanceof MovePromotion)
+            {
+                for (PieceType pieceType : PROMOTION_TYPES)
+                {
+                    ((MovePromotion)move).setNewPieceType(pieceType);
+                    moves[numMoves++] = PackedMove.pack((MovePromotion)move);
+                }
+            }
+            else
+            {
+                moves[numMoves++] = PackedMove.pack((ChessMove)move);
+            }
+        }
+        return numMoves;
+    }
+}
@@ -0,0 +1,190 @@
+package chess;
+
+import chess.pieces.ChessPiece;
+import static chess.ChessBoardState.NUM_SQUARES;
+import game.utility.Properties.Direction;
+
+/**
+ * material values and piece-square tables for evaluating Chess positions, in centipawns<br>
+ * - each piece-type has a middlegame and an endgame value on every square:
+ *   its material value plus a bonus (or penalty) for standing on that square<br>
+ * - the tables are written for a color moving UP, its back row at the bottom;
+ *   the squares of a color moving DOWN are mirrored top-to-bottom before the lookup<br>
+ * - the game phase counts the minor and major pieces left on the board, from
+ *   MAX_PHASE with all of them down to 0 with only kings and pawns; an evaluation
+ *   blends the middlegame and endgame scores by the phase (a tapered evaluation)<br>
+ * - ChessBoardState sums these values as pieces are set and removed, so
+ *   evaluating a position does not need to look at the pieces at all
+ * @author devang
+ */
+public final class PieceSquareTables {
+    public static final int MAX_PHASE = 24;
+
+    // indexed by piece-type (ChessPiece.PAWN ... ChessPiece.KING)
+    private static final int[] MIDDLEGAME_VALUES = { 100, 320, 330, 500, 900, 0 };
+    private static final int[] ENDGAME_VALUES    = { 120, 300, 320, 530, 950, 0 };
+    private static final int[] PHASE_WEIGHTS     = {   0,   1,   1,   2,   4, 0 };
+
+    private static final int[] PAWN_MIDDLEGAME = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] PAWN_ENDGAME = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         90,  90,  90,  90,  90,  90,  90,  90,
+         60,  60,  60,  60,  60,  60,  60,  60,
+         35,  35,  35,  35,  35,  35,  35,  35,
+         20,  20,  20,  20,  20,  20,  20,  20,
+         10,  10,  10,  10,  10,  10,  10,  10,
+          5,   5,   5,   5,   5,   5,   5,   5,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0
+    };
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLEGAME = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+    private static final int[] KING_ENDGAME = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    // material plus square bonus, indexed by [piece-type][square], as seen by a color moving UP
+    private static final int[][] MIDDLEGAME = new int[ChessPiece.NUM_TYPES][NUM_SQUARES];
+    private static final int[][] ENDGAME    = new int[ChessPiece.NUM_TYPES][NUM_SQUARES];
+
+    static
+    {
+        int[][] middlegameTables = { PAWN_MIDDLEGAME, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_MIDDLEGAME };
+        int[][] endgameTables    = { PAWN_ENDGAME,    KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_ENDGAME };
+        for (int type = 0; type < ChessPiece.NUM_TYPES; type++)
+        {
+            for (int square = 0; square < NUM_SQUARES; square++)
+            {
+                MIDDLEGAME[type][square] = MIDDLEGAME_VALUES[type] + middlegameTables[type][square];
+                ENDGAME[type][square]    = ENDGAME_VALUES[type]    + endgameTables[type][square];
+            }
+        }
+    }
+
+    private PieceSquareTables() { }
+
+    /**
+     * gets the middlegame value of a piece on a square: material plus square bonus
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @param square square index of the piece
+     * @param direction direction the pieces of its color move
+     * @return value of the piece, in centipawns
+     */
+    public static int middlegame(int type, int square, Direction direction)
+    {
+        return MIDDLEGAME[type][relativeSquare(square,direction)];
+    }
+
+    /**
+     * gets the endgame value of a piece on a square: material plus square bonus
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @param square square index of the piece
+     * @param direction direction the pieces of its color move
+     * @return value of the piece, in centipawns
+     */
+    public static int endgame(int type, int square, Direction direction)
+    {
+        return ENDGAME[type][relativeSquare(square,direction)];
+    }
+
+    /**
+     * gets how much a kind of piece counts toward the game phase
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @return phase weight: 0 for pawns and kings
+     */
+    public static int phase(int type)
+    {
+        return PHASE_WEIGHTS[type];
+    }
+
+    /**
+     * gets the middlegame material value of a kind of piece, without any square bonus
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @return material value, in centipawns
+     */
+    public static int getPieceValue(int type)
+    {
+        return MIDDLEGAME_VALUES[type];
+    }
+
+    /**
+     * blends a middlegame and an endgame score by the game phase
+     * @param middlegame score as if in the middlegame
+     * @param endgame score as if in the endgame
+     * @param phase game phase, MAX_PHASE with all pieces on the board (more is capped)
+     * @return tapered score
+     */
+    public static int taper(int middlegame, int endgame, int phase)
+    {
+        int middlegamePhase = Math.min(phase,MAX_PHASE);
+        return (middlegame * middlegamePhase + endgame * (MAX_PHASE - middlegamePhase)) / MAX_PHASE;
+    }
+
+    private static int relativeSquare(int square, Direction direction)
+    {
+        return (direction == Direction.DOWN) ? (square ^ 56) : square;
+    }
+}
@@ -0,0 +1,148 @@
+package chess;
+
+import chess.pieces.ChessPiece;
+import static chess.ChessRules.NUM_COLS;
+import game.utility.Properties.PlayerColor;
+
+/**
+ * static exchange evaluation (SEE): the material won or lost by a capture, when both sides
+ * keep recapturing on the square with their least valuable attacker<br>
+ * - the attackers of the square come from ChessBoardState.getAttackers, for both colors;
+ *   as each attacker captures it is lifted from the occupancy, so sliders lined up behind
+ *   it (x-rays) join the exchange<br>
+ * - either side may stop recapturing when going on would lose more, so the result is
+ *   the best both sides can do, without searching a single move<br>
+ * - promotions and checks are not considered: this is an estimate, for pruning and ordering
+ * @author devang
+ */
+public final class StaticExchange {
+    private static final int KING_VALUE = 20000; // a king can only take last: it is never lost
+    private static final int MAX_EXCHANGE = 32;
+
+    private StaticExchange() { }
+
+    /**
+     * evaluates the exchange started by a capture (or a quiet move onto an attacked square)
+     * @param boardState state of the board before the move
+     * @param from square index the moving piece leaves
+     * @param to square index the moving piece arrives at
+     * @return material balance of the exchange for the moving side, in centipawns
+     */
+    public static int evaluate(ChessBoardState boardState, int from, int to)
+    {
+        ChessPiece mover    = boardState.getPiece(from);
+        ChessPiece victim   = boardState.getPiece(to);
+        long       occupied = boardState.getOccupied() & ~(1L << from);
+
+        int[] gain = new int[MAX_EXCHANGE];
+        if (victim != null)
+        {
+            gain[0] = value(victim.getType());
+        }
+        else if ((mover.getType() == ChessPiece.PAWN) && ((from % NUM_COLS) != (to % NUM_COLS)))
+        {
+            // en passant: the captured pawn is beside the moving pawn, not on the square
+            gain[0]   = value(ChessPiece.PAWN);
+            occupied &= ~(1L << ((from / NUM_COLS) * NUM_COLS + (to % NUM_COLS)));
+        }
+
+        PlayerColor side       = ChessRules.oppositeColor(mover.getColor());
+        int         onSquare   = mover.getType(); // type of the piece standing on the square
+        long        attackers  = allAttackers(boardState,to,occupied);
+        int         depth      = 0;
+
+        while (depth < MAX_EXCHANGE-1)
+        {
+            long sideAttackers = attackers & boardState.getColorBoard(side);
+            if (sideAttackers == 0L) break;
+
+            // a king may not capture onto a square the other side still attacks
+            int  type = leastValuableType(boardState,sideAttackers,side);
+            long bit  = Long.lowestOneBit(sideAttackers & boardState.getPieceBoard(side,type));
+            if ((type == ChessPiece.KING) && ((attackers & ~sideAttackers) != 0L)) break;
+
+            depth++;
+            gain[depth] = value(onSquare) - gain[depth-1];
+
+            onSquare   = type;
+            occupied  &= ~bit;
+            attackers  = allAttackers(boardState,to,occupied);
+            side       = ChessRules.oppositeColor(side);
+        }
+
+        // each side takes the better of stopping and going on, from the last capture back
+        while (depth > 0)
+        {
+            gain[depth-1] = -Math.max(-gain[depth-1],gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    /**
+     * tests if a capture loses material, by static exchange evaluation<br>
+     * - taking a piece worth at least the capturing piece can not lose material,
+     *   so the exchange is only played out when a cheaper piece is taken<br>
+     * - unlike evaluate, only the sign of the exchange is worked out, as the exchange goes,
+     *   so the test keeps no list of gains and does not allocate: it is used at every node
+     * @param boardState state of the board before the move
+     * @param from square index the capturing piece leaves
+     * @param to square index the capturing piece arrives at
+     * @return true if the exchange loses material for the capturing side
+     */
+    public static boolean isLosing(ChessBoardState boardState, int from, int to)
+    {
+        ChessPiece mover    = boardState.getPiece(from);
+        ChessPiece victim   = boardState.getPiece(to);
+        long       occupied = boardState.getOccupied() & ~(1L << from);
+
+        int victimValue = (victim == null) ? value(ChessPiece.PAWN) : value(victim.getType());
+        if (value(mover.getType()) <= victimValue) return false;
+        if ((victim == null) && (mover.getType() == ChessPiece.PAWN))
+            occupied &= ~(1L << ((from / NUM_COLS) * NUM_COLS + (to % NUM_COLS)));
+
+        // swap: what the side to capture next must win back to come out ahead; the sides
+        // take turns, and the last side able to capture without falling behind wins
+        int         swap      = value(mover.getType()) - victimValue;
+        boolean     winning   = true;
+        PlayerColor side      = mover.getColor();
+        long        attackers = allAttackers(boardState,to,occupied);
+
+        while (true)
+        {
+            side = ChessRules.oppositeColor(side);
+            long sideAttackers = attackers & boardState.getColorBoard(side);
+            if (sideAttackers == 0L) break;
+            winning = !winning;
+
+            int type = leastValuableType(boardState,sideAttackers,side);
+            if (type == ChessPiece.KING)
+                return !(((attackers & ~sideAttackers) != 0L) ? !winning : winning);
+
+            swap = value(type) - swap;
+            if (swap < (winning ? 1 : 0)) break;
+
+            occupied  &= ~Long.lowestOneBit(sideAttackers & boardState.getPieceBoard(side,type));
+            attackers  = allAttackers(boardState,to,occupied);
+        }
+        return !winning;
+    }
+
+    private static long allAttackers(ChessBoardState boardState, int square, long occupied)
+    {
+        return (boardState.getAttackers(square,PlayerColor.RED,occupied)
+              | boardState.getAttackers(square,PlayerColor.BLACK,occupied)) & occupied;
+    }
+
+    private static int leastValuableType(ChessBoardState boardState, long attackers, PlayerColor color)
+    {
+        for (int type = ChessPiece.PAWN; type < ChessPiece.KING; type++)
+            if ((attackers & boardState.getPieceBoard(color,type)) != 0L) return type;
+        return ChessPiece.KING;
+    }
+
+    private static int value(int type)
+    {
+        return (type == ChessPiece.KING) ? KING_VALUE : PieceSquareTables.getPieceValue(type);
+    }
+}
@@ -0,0 +1,349 @@
+package chess;
+
+import chess.moves.ChessMove;
+import chess.moves.PackedMove;
+import chess.players.ai.ChessAI;
+import chess.players.ai.ChessSearch;
+import chess.players.ai.TranspositionTable;
+import game.boardgame.BoardState;
+import game.moves.Move;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * a UCI (Universal Chess Interface) front end over the Chess search, so the engine can be run
+ * by match tools and GUIs and played against other engines, with no window of its own<br>
+ * - commands: uci, isready, ucinewgame, setoption (Hash; Threads, the main search and
+ *   its Lazy SMP helpers),
+ *   position [startpos | fen ...] [moves ...], go [depth | movetime | wtime btime winc binc
+ *   movestogo | infinite], stop, quit; other commands are ignored, as UCI asks<br>
+ * - the game is played through ChessRules, so the search sees the positions of the game
+ *   for repetitions; one transposition table is kept between moves, until ucinewgame:
+ *   its scores are from the side to move of each position, so searches for either
+ *   color, as in analysis of both sides, can share it<br>
+ * - the search runs on its own thread, so stop is read while it searches; an info line
+ *   (depth, score, nodes, nps, time, pv) is sent after each iteration, then the bestmove;
+ *   a command that changes the position or the options first waits for the bestmove<br>
+ * - with a clock, a move is given its share of the time left (over movestogo, or
+ *   DEFAULT_MOVES_TO_GO moves) and most of its increment<br>
+ * - run with: java chess.UciEngine
+ * @author devang
+ */
+public final class UciEngine {
+    private static final String NAME   = "BoardGames Chess";
+    private static final String AUTHOR = "devang";
+
+    private static final int  DEFAULT_MOVES_TO_GO = 30;  // moves the time left is shared over, if not given
+    private static final long MOVE_OVERHEAD       = 50;  // milliseconds kept back for the protocol, per move
+    private static final long NO_TIME_LIMIT       = Integer.MAX_VALUE;
+
+    private final BufferedReader input;
+    private final PrintStream    output;
+
+    private TranspositionTable transpositionTable;
+    private ChessRules         rules;
+
+    private ChessSearch      search;
+    private Thread           searchThread;
+    private long             searchStart;
+    private volatile boolean stopRequested;
+    private volatile boolean infinite; // go infinite: the bestmove waits for stop
+
+    private UciEngine(BufferedReader input, PrintStream output)
+    {
+        this.input  = input;
+        this.output = output;
+        transpositionTable = TranspositionTable.create(ChessAI.hashSizeMB);
+        rules = ChessRules.create(Fen.START_POSITION);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        new UciEngine(new BufferedReader(new InputStreamReader(System.in)),System.out).run();
+    }
+
+    // reads commands until quit, or the end of the input
+    private void run() throws IOException
+    {
+        String line;
+        while ((line = input.readLine()) != null)
+        {
+            String[] tokens = line.trim().split("\\s+");
+            switch (tokens[0])
+            {
+                case "uci":
+                    send("id name " + NAME);
+                    send("id author " + AUTHOR);
+                    send("option name Hash type spin default " + ChessAI.hashSizeMB + " min 1 max 4096");
+                    send("option name Threads type spin default " + (ChessAI.helperThreads + 1) + " min 1 max 256");
+                    send("uciok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "ucinewgame":
+                    finishSearch();
+                    transpositionTable = TranspositionTable.create(ChessAI.hashSizeMB);
+                    rules = ChessRules.create(Fen.START_POSITION);
+                    break;
+                case "setoption":
+                    finishSearch();
+                    setOption(tokens);
+                    break;
+                case "position":
+                    finishSearch();
+                    setPosition(tokens);
+                    break;
+                case "go":
+                    finishSearch();
+                    startSearch(tokens);
+                    break;
+                case "stop":
+                    stopSearch();
+                    break;
+                case "quit":
+                    stopSearch();
+                    return;
+                default:
+                    break;
+            }
+        }
+        stopSearch();
+    }
+
+    // setoption name <name> value <value>
+    private void setOption(String[] tokens)
+    {
+        String name  = valueOf(tokens,"name");
+        String value = valueOf(tokens,"value");
+        if ((name == null) || (value == null)) return;
+
+        try {
+            if (name.equalsIgnoreCase("Hash"))
+            {
+                ChessAI.hashSizeMB = Math.max(1,Integer.parseInt(value));
+                transpositionTable = TranspositionTable.create(ChessAI.hashSizeMB);
+            }
+            else if (name.equalsIgnoreCase("Threads"))
+            {
+                ChessAI.helperThreads = Math.max(1,Integer.parseInt(value)) - 1;
+            }
+        } catch (NumberFormatException ex) {
+            send("info string not a number: " + value);
+        }
+    }
+
+    // position [startpos | fen <fields>] [moves <move> ...]
+    private void setPosition(String[] tokens)
+    {
+        int moves = indexOf(tokens,"moves");
+        if (moves < 0) moves = tokens.length;
+
+        try {
+            if ((tokens.length > 1) && tokens[1].equals("fen"))
+                rules = ChessRules.create(String.join(" ",Arrays.copyOfRange(tokens,2,moves)));
+            else
+                rules = ChessRules.create(Fen.START_POSITION);
+        } catch (IllegalArgumentException ex) {
+            send("info string " + ex.getMessage());
+            rules = ChessRules.create(Fen.START_POSITION);
+            return;
+        }
+
+        for (int i = moves + 1; i < tokens.length; i++)
+        {
+            int move = findMove(tokens[i]);
+            if (move == PackedMove.NO_MOVE)
+            {
+                send("info string illegal move: " + tokens[i]);
+                return;
+            }
+            rules.commitMove(move);
+        }
+    }
+
+    // finds the legal move of the side to move written in coordinate notation
+    private int findMove(String notation)
+    {
+        for (int move : rules.getLegalMoves())
+        {
+            if (PackedMove.toNotation(move).equals(notation)) return move;
+        }
+        return PackedMove.NO_MOVE;
+    }
+
+    // go [depth <plies>] [movetime <ms>] [wtime <ms>] [btime <ms>] [winc <ms>] [binc <ms>] [movestogo <n>] [infinite]
+    private void startSearch(String[] tokens)
+    {
+        boolean red       = (rules.getSideToMove() == ChessRules.INITIAL_PLAYER_COLOR);
+        int     depth     = intValueOf(tokens,"depth",ChessSearch.MAX_PLY - 1);
+        long    moveTime  = intValueOf(tokens,"movetime",-1);
+        long    clock     = intValueOf(tokens,red ? "wtime" : "btime",-1);
+        long    inc       = intValueOf(tokens,red ? "winc" : "binc",0);
+        int     movesToGo = intValueOf(tokens,"movestogo",DEFAULT_MOVES_TO_GO);
+
+        long time = NO_TIME_LIMIT;
+        if (moveTime >= 0)
+        {
+            time = Math.max(1L,moveTime - MOVE_OVERHEAD);
+        }
+        else if (clock >= 0)
+        {
+            time = clock / Math.max(1,movesToGo) + inc * 3 / 4;
+            time = Math.max(1L,Math.min(time,clock - MOVE_OVERHEAD));
+        }
+        infinite      = (indexOf(tokens,"infinite") >= 0);
+        stopRequested = false;
+
+        ChessSearch      moveSearch  = ChessSearch.create(rules.getSideToMove(),transpositionTable);
+        ChessBoardState  boardState  = (ChessBoardState)BoardState.copy(rules.getBoardState());
+        ChessGameHistory gameHistory = rules.getGameHistory();
+        int[]            rootMoves   = rules.getLegalMoves();
+        long             maxTime     = time;
+
+        moveSearch.setListener(this::sendInfo);
+        search       = moveSearch;
+        searchStart  = System.currentTimeMillis();
+        searchThread = new Thread(() -> {
+            Move bestMove = moveSearch.search(boardState,gameHistory,rootMoves,depth,maxTime);
+            waitWhileInfinite();
+            sendBestMove(moveSearch,bestMove,rootMoves);
+        });
+        searchThread.start();
+    }
+
+    // waits for the search running, if any, to send its bestmove: an infinite one is stopped
+    private void finishSearch()
+    {
+        if (infinite) stopSearch();
+        else          joinSearch();
+    }
+
+    // stops the search running, if any, and waits for its bestmove
+    private void stopSearch()
+    {
+        if (searchThread == null) return;
+
+        synchronized (this)
+        {
+            stopRequested = true;
+            infinite      = false;
+            notifyAll();
+        }
+        search.stop();
+        joinSearch();
+    }
+
+    private void joinSearch()
+    {
+        if (searchThread == null) return;
+
+        try {
+            searchThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+        search       = null;
+    }
+
+    private synchronized void waitWhileInfinite()
+    {
+        while (infinite && !stopRequested)
+        {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // info depth <d> score <cp x | mate y> nodes <n> nps <n> time <ms> pv <moves>
+    private void sendInfo(ChessSearch moveSearch)
+    {
+        if (stopRequested) moveSearch.stop(); // a stop sent before the search had started
+
+        long elapsed = Math.max(1L,System.currentTimeMillis() - searchStart);
+        int  score   = moveSearch.getScore();
+
+        StringBuilder info = new StringBuilder("info depth ").append(moveSearch.getCompletedDepth());
+        if (Math.abs(score) >= ChessSearch.MATE_SCORE - ChessSearch.MAX_PLY)
+        {
+            int moves = (ChessSearch.MATE_SCORE - Math.abs(score) + 1) / 2;
+            info.append(" score mate ").append((score > 0) ? moves : -moves);
+        }
+        else
+        {
+            info.append(" score cp ").append(score);
+        }
+        info.append(" nodes ").append(moveSearch.getNodes())
+            .append(" nps ").append(moveSearch.getNodes() * 1000 / elapsed)
+            .append(" time ").append(elapsed)
+            .append(" pv");
+        for (int move : moveSearch.getPrincipalVariation())
+            info.append(' ').append(PackedMove.toNotation(move));
+        send(info.toString());
+    }
+
+    // bestmove <move> [ponder <move>]: 0000 only if there is no legal move
+    private void sendBestMove(ChessSearch moveSearch, Move bestMove, int[] rootMoves)
+    {
+        if (rootMoves.length == 0)
+        {
+            send("bestmove 0000");
+            return;
+        }
+
+        int move = (bestMove != null) ? PackedMove.pack((ChessMove)bestMove) : rootMoves[0];
+        StringBuilder line = new StringBuilder("bestmove ").append(PackedMove.toNotation(move));
+        int[] pv = moveSearch.getPrincipalVariation();
+        if (pv.length > 1) line.append(" ponder ").append(PackedMove.toNotation(pv[1]));
+        send(line.toString());
+    }
+
+    private synchronized void send(String line)
+    {
+        output.println(line);
+        output.flush();
+    }
+
+    private static int indexOf(String[] tokens, String token)
+    {
+        for (int i = 0; i < tokens.length; i++)
+        {
+            if (tokens[i].equals(token)) return i;
+        }
+        return -1;
+    }
+
+    // the words after a keyword, up to the next keyword of setoption
+    private static String valueOf(String[] tokens, String keyword)
+    {
+        int index = indexOf(tokens,keyword);
+        if (index < 0) return null;
+
+        StringBuilder value = new StringBuilder();
+        for (int i = index + 1; (i < tokens.length) && !tokens[i].equals("name") && !tokens[i].equals("value"); i++)
+        {
+            if (value.length() > 0) value.append(' ');
+            value.append(tokens[i]);
+        }
+        return value.toString();
+    }
+
+    private static int intValueOf(String[] tokens, String keyword, int defaultValue)
+    {
+        int index = indexOf(tokens,keyword);
+        if ((index < 0) || (index + 1 >= tokens.length)) return defaultValue;
+        try {
+            return Integer.parseInt(tokens[index + 1]);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
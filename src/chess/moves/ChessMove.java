@@ -1,19 +1,64 @@
 package chess.moves;
 
+import chess.ChessBoardState;
 import game.boardgame.BoardState;
 import game.moves.Move;
 import game.utility.Location;
 import java.io.Serializable;
 
 /**
- * represents a move for a Chess board
+ * represents a move for a Chess board<br>
+ * - besides the pieces it moves, a ChessMove passes the turn and updates castling rights,
+ *   the en-passant square and the move counters of a ChessBoardState, and restores them when undone
  * @author devang
  */
 public abstract class ChessMove extends Move implements Serializable {
+    private transient long savedPositionState;
+
     public abstract ChessMove getCopy();
     public abstract void      commitMove(BoardState boardState);
     public abstract Location  getToLocation();
     public abstract Location  getFromLocation();
     @Override
     public abstract ChessMove rotateMove();
+
+    /**
+     * saves the position state (side to move, castling rights, en-passant square and
+     * move counters) of the board state, before this Move changes them
+     * @param boardState state of a board to which this Move is being committed
+     */
+    protected void savePositionState(BoardState boardState)
+    {
+        if (boardState instanceof ChessBoardState)
+            savedPositionState = ((ChessBoardState)boardState).getPositionState();
+    }
+
+    /**
+     * updates the position state of the board state, after this Move has placed its pieces
+     * @param boardState state of a board to which this Move is being committed
+     * @param from location the moving piece left
+     * @param to location the moving piece arrived at
+     * @param enPassant location skipped by a two-space pawn move, null if there is none
+     * @param irreversible true for a capture or a pawn move, which restart the halfmove clock
+     */
+    protected void updatePositionState(BoardState boardState, Location from, Location to, Location enPassant, boolean irreversible)
+    {
+        if (!(boardState instanceof ChessBoardState)) return;
+
+        int enPassantSquare = (enPassant == null) ? ChessBoardState.NO_EN_PASSANT : ChessBoardState.square(enPassant);
+        ((ChessBoardState)boardState).updatePositionState(ChessBoardState.square(from),ChessBoardState.square(to),
+                                                          enPassantSquare,irreversible);
+    }
+
+    /**
+     * reverts the most recent commit of this Move, including the position state
+     * @param boardState state of a board to which this Move was committed
+     */
+    @Override
+    public void undoMove(BoardState boardState)
+    {
+        super.undoMove(boardState);
+        if (boardState instanceof ChessBoardState)
+            ((ChessBoardState)boardState).setPositionState(savedPositionState);
+    }
 }
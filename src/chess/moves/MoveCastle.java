@@ -2,6 +2,7 @@ package chess.moves;
 
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import java.io.Serializable;
 
@@ -106,12 +107,21 @@ public class MoveCastle extends ChessMove implements Serializable {
     @Override
     public void commitMove(BoardState boardState)
     {
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,kingFrom);
+        undoRecord.save(boardState,rookFrom);
+        undoRecord.save(boardState,kingTo);
+        undoRecord.save(boardState,rookTo);
+        savePositionState(boardState);
+        
         Piece kingPiece = boardState.getPiece(kingFrom);
         Piece rookPiece = boardState.getPiece(rookFrom);
         boardState.removePiece(kingFrom);
         boardState.removePiece(rookFrom);
         boardState.setPiece(kingPiece,kingTo);
         boardState.setPiece(rookPiece,rookTo);
+        
+        updatePositionState(boardState,kingFrom,kingTo,null,false);
     }
     
     @Override 
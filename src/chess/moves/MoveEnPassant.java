@@ -2,6 +2,7 @@ package chess.moves;
 
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import java.io.Serializable;
 
@@ -68,10 +69,19 @@ public class MoveEnPassant extends ChessMove implements Serializable {
         int endRank   = Location.getRow(to);
         
         Location locationCapture = Location.of(endFile,startRank);
+        
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,from);
+        undoRecord.save(boardState,locationCapture);
+        undoRecord.save(boardState,to);
+        savePositionState(boardState);
+        
         Piece piece = boardState.getPiece(from);
         boardState.removePiece(from);
         boardState.removePiece(locationCapture);
         boardState.setPiece(piece,to);
+        
+        updatePositionState(boardState,from,to,null,true);
     }
     
     @Override
@@ -1,12 +1,12 @@
 package chess.moves;
 
-import chess.pieces.ChessPiece;
 import chess.pieces.PieceBishop;
 import chess.pieces.PieceKnight;
 import chess.pieces.PieceQueen;
 import chess.pieces.PieceRook;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import game.utility.Properties.PlayerColor;
 import java.io.Serializable;
@@ -51,6 +51,15 @@ public class MovePromotion extends ChessMove implements Serializable {
         this.newPieceType = newPieceType;
     }
     
+    /**
+     * gets the piece to which the pawn will upgrade
+     * @return the upgraded piece, null if the player has not chosen it yet
+     */
+    public PieceType getNewPieceType()
+    {
+        return newPieceType;
+    }
+    
     /**
      * gets the origin location for the pawn in a pawn-promoting Move
      * @return Location from which the pawn will move
@@ -90,6 +99,11 @@ public class MovePromotion extends ChessMove implements Serializable {
     @Override
     public void commitMove(BoardState boardState)
     {
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,from);
+        undoRecord.save(boardState,to);
+        savePositionState(boardState);
+        
         Piece oldPiece   = boardState.getPiece(from);
         Piece newPiece   = null;
         PlayerColor pieceColor = oldPiece.getColor();
@@ -116,9 +130,6 @@ public class MovePromotion extends ChessMove implements Serializable {
             }
         }
         
-        if (newPiece != null)
-            ((ChessPiece)newPiece).setProperties(((ChessPiece)oldPiece).getProperties());
-        
         if (!boardState.isEmpty(to))
             boardState.removePiece(to);
         
@@ -128,6 +139,8 @@ public class MovePromotion extends ChessMove implements Serializable {
             boardState.setPiece(newPiece,to);
         else
             boardState.setPiece(oldPiece,to);
+        
+        updatePositionState(boardState,from,to,null,true);
     }
         
     @Override
@@ -1,7 +1,9 @@
 package chess.moves;
 
+import chess.pieces.ChessPiece;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
+import game.moves.UndoRecord;
 import game.utility.Location;
 import java.io.Serializable;
 
@@ -63,14 +65,27 @@ public class MoveRegular extends ChessMove implements Serializable {
     @Override
     public void commitMove(BoardState boardState)
     {
-        Piece piece = boardState.getPiece(from);
+        UndoRecord undoRecord = beginUndo();
+        undoRecord.save(boardState,from);
+        undoRecord.save(boardState,to);
+        savePositionState(boardState);
+        
+        Piece   piece   = boardState.getPiece(from);
+        boolean capture = !boardState.isEmpty(to);
         
         boardState.removePiece(from);
         
-        if (!boardState.isEmpty(to))
+        if (capture)
             boardState.removePiece(to);
         
         boardState.setPiece(piece,to);
+        
+        boolean  pawn      = (piece instanceof ChessPiece) && (((ChessPiece)piece).getType() == ChessPiece.PAWN);
+        Location enPassant = null;
+        if (pawn && (Math.abs(Location.getRow(to) - Location.getRow(from)) == 2))
+            enPassant = Location.of(Location.getCol(from),(Location.getRow(from) + Location.getRow(to)) / 2);
+        
+        updatePositionState(boardState,from,to,enPassant,pawn || capture);
     }
         
     @Override
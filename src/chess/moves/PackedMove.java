@@ -0,0 +1,214 @@
+package chess.moves;
+
+import chess.ChessBoardState;
+import static chess.ChessRules.NUM_COLS;
+import static chess.ChessRules.NUM_ROWS;
+import chess.moves.MovePromotion.PieceType;
+import chess.pieces.ChessPiece;
+import game.utility.Location;
+
+/**
+ * Chess moves packed into the low 16 bits of an int, for searches that must not allocate:<br>
+ * - bits [0,6): square index the moving piece leaves<br>
+ * - bits [6,12): square index the moving piece arrives at (the king's, for a castle)<br>
+ * - bits [12,14): kind of move: NORMAL (including captures and two-space pawn moves),
+ *   CASTLE, EN_PASSANT or PROMOTION<br>
+ * - bits [14,16): piece a pawn promotes to: knight, bishop, rook or queen<br>
+ * - a packed move is made and undone by ChessBoardState.makeMove and unmakeMove;
+ *   ChessMove objects are only created from it at the edges, for the game and the GUI<br>
+ * - NO_MOVE (0) is never a real move: a piece can not move to its own square
+ * @author devang
+ */
+public final class PackedMove {
+    public static final int NO_MOVE = 0;
+
+    public static final int NORMAL     = 0;
+    public static final int CASTLE     = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int PROMOTION  = 3;
+
+    private static final int TO_SHIFT        = 6;
+    private static final int KIND_SHIFT      = 12;
+    private static final int PROMOTION_SHIFT = 14;
+    private static final int SQUARE_MASK     = 0x3F;
+
+    private PackedMove() { }
+
+    /**
+     * packs a move
+     * @param from square index the moving piece leaves
+     * @param to square index the moving piece arrives at
+     * @param kind one of NORMAL, CASTLE, EN_PASSANT or PROMOTION
+     * @return packed move
+     */
+    public static int of(int from, int to, int kind)
+    {
+        return from | (to << TO_SHIFT) | (kind << KIND_SHIFT);
+    }
+
+    /**
+     * packs a promotion
+     * @param from square index the pawn leaves
+     * @param to square index the pawn arrives at
+     * @param pieceType piece-type index of the new piece (ChessPiece.KNIGHT ... ChessPiece.QUEEN)
+     * @return packed move
+     */
+    public static int promotion(int from, int to, int pieceType)
+    {
+        return of(from,to,PROMOTION) | ((pieceType - ChessPiece.KNIGHT) << PROMOTION_SHIFT);
+    }
+
+    /**
+     * gets the square index a packed move leaves
+     * @param move packed move
+     * @return square index of the moving piece
+     */
+    public static int getFrom(int move)
+    {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * gets the square index a packed move arrives at
+     * @param move packed move
+     * @return square index the moving piece (the king, for a castle) arrives at
+     */
+    public static int getTo(int move)
+    {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * gets the kind of a packed move
+     * @param move packed move
+     * @return one of NORMAL, CASTLE, EN_PASSANT or PROMOTION
+     */
+    public static int getKind(int move)
+    {
+        return (move >>> KIND_SHIFT) & 0x3;
+    }
+
+    /**
+     * gets the piece a pawn promotes to, in a packed promotion
+     * @param move packed move, of kind PROMOTION
+     * @return piece-type index of the new piece (ChessPiece.KNIGHT ... ChessPiece.QUEEN)
+     */
+    public static int getPromotionType(int move)
+    {
+        return ChessPiece.KNIGHT + ((move >>> PROMOTION_SHIFT) & 0x3);
+    }
+
+    /**
+     * gets the square index of the rook in a packed castle: the corner on the king's side of travel
+     * @param move packed move, of kind CASTLE
+     * @return square index the rook leaves
+     */
+    public static int getRookFrom(int move)
+    {
+        int from = getFrom(move);
+        int row  = from / NUM_COLS;
+        return (getTo(move) > from) ? (row * NUM_COLS + NUM_COLS - 1) : (row * NUM_COLS);
+    }
+
+    /**
+     * gets the square index the rook arrives at in a packed castle: the square the king crosses
+     * @param move packed move, of kind CASTLE
+     * @return square index the rook arrives at
+     */
+    public static int getRookTo(int move)
+    {
+        int from = getFrom(move);
+        return (getTo(move) > from) ? (from + 1) : (from - 1);
+    }
+
+    /**
+     * creates the ChessMove for a packed move, to hand it to the game
+     * @param move packed move
+     * @return newly-created ChessMove, null for NO_MOVE
+     */
+    public static ChessMove toChessMove(int move)
+    {
+        if (move == NO_MOVE) return null;
+
+        Location from = ChessBoardState.location(getFrom(move));
+        Location to   = ChessBoardState.location(getTo(move));
+        switch (getKind(move))
+        {
+            case CASTLE:
+                return new MoveCastle(from,to,ChessBoardState.location(getRookFrom(move)),
+                                      ChessBoardState.location(getRookTo(move)));
+            case EN_PASSANT:
+                return new MoveEnPassant(from,to);
+            case PROMOTION:
+                return new MovePromotion(from,to,toPieceType(getPromotionType(move)));
+            default:
+                return new MoveRegular(from,to);
+        }
+    }
+
+    /**
+     * packs a ChessMove, as from the game history or the network
+     * @param move move to pack; a promotion with no piece chosen yet packs as a queen promotion
+     * @return packed move, NO_MOVE for null
+     */
+    public static int pack(ChessMove move)
+    {
+        if (move == null) return NO_MOVE;
+
+        int from = ChessBoardState.square(move.getFromLocation());
+        int to   = ChessBoardState.square(move.getToLocation());
+        if (move instanceof MoveCastle)    return of(from,to,CASTLE);
+        if (move instanceof MoveEnPassant) return of(from,to,EN_PASSANT);
+        if (move instanceof MovePromotion)
+        {
+            PieceType pieceType = ((MovePromotion)move).getNewPieceType();
+            return promotion(from,to,(pieceType == null) ? ChessPiece.QUEEN : toPieceTypeIndex(pieceType));
+        }
+        return of(from,to,NORMAL);
+    }
+
+    /**
+     * writes a packed move in coordinate notation: the squares it leaves and arrives at,
+     * and the letter of the piece a pawn promotes to (e2e4, e1g1, e7e8q)<br>
+     * - squares are named for a board set up as in a FEN: RED (white) moving up, from row NUM_ROWS-1
+     * @param move packed move
+     * @return move in coordinate notation, "0000" for NO_MOVE
+     */
+    public static String toNotation(int move)
+    {
+        if (move == NO_MOVE) return "0000";
+
+        StringBuilder notation = new StringBuilder(5);
+        appendSquare(notation,getFrom(move));
+        appendSquare(notation,getTo(move));
+        if (getKind(move) == PROMOTION) notation.append("pnbrqk".charAt(getPromotionType(move)));
+        return notation.toString();
+    }
+
+    private static void appendSquare(StringBuilder notation, int square)
+    {
+        notation.append((char)('a' + square % NUM_COLS)).append((char)('0' + NUM_ROWS - square / NUM_COLS));
+    }
+
+    private static PieceType toPieceType(int type)
+    {
+        switch (type)
+        {
+            case ChessPiece.KNIGHT: return PieceType.KNIGHT;
+            case ChessPiece.BISHOP: return PieceType.BISHOP;
+            case ChessPiece.ROOK:   return PieceType.ROOK;
+            default:                return PieceType.QUEEN;
+        }
+    }
+
+    private static int toPieceTypeIndex(PieceType pieceType)
+    {
+        switch (pieceType)
+        {
+            case KNIGHT: return ChessPiece.KNIGHT;
+            case BISHOP: return ChessPiece.BISHOP;
+            case ROOK:   return ChessPiece.ROOK;
+            default:     return ChessPiece.QUEEN;
+        }
+    }
+}
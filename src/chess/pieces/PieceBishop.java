@@ -2,16 +2,13 @@ package chess.pieces;
 
 import chess.ChessBoardState;
 import chess.ChessGameHistory;
-import chess.moves.ChessMove;
+import chess.MoveGenerator;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
 import game.moves.Move;
 import game.utility.Location;
-import game.utility.Properties;
 import game.utility.Properties.PlayerColor;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.function.BiFunction;
 
 /**
  * Represents a Bishop for Chess games
@@ -19,6 +16,8 @@ import java.util.function.BiFunction;
  * @author devang
  */
 public class PieceBishop extends ChessPiece {
+    private static final PieceBishop RED_BISHOP   = new PieceBishop(PlayerColor.RED);
+    private static final PieceBishop BLACK_BISHOP = new PieceBishop(PlayerColor.BLACK);
     
     private PieceBishop(PlayerColor pieceColor)
     {
@@ -28,6 +27,7 @@ public class PieceBishop extends ChessPiece {
     /**
      * gets a list of valid moves for the piece at the given location on the given board state<br>
      * - the piece at this location will be this bishop<br>
+     * - generated by the MoveGenerator, which finds pins and checks once for the position<br>
      * @param location location for this bishop on the board for which to determine all valid moves
      * @param boardState state of the board to analyze for current valid moves
      * @param gameHistory not-yet implemented, but intended for algebraic-chess-notation game recording
@@ -36,73 +36,36 @@ public class PieceBishop extends ChessPiece {
     @Override
     public List<Move> getValidMoves(Location location, BoardState boardState, ChessGameHistory gameHistory)
     {
-        List<Move> validMoves = new ArrayList<>();
-        if (location == null) return validMoves;
-        
-        Piece thisPiece = boardState.getPiece(location);
-        if (!(thisPiece instanceof PieceBishop)) return validMoves;
-        
-        PlayerColor playerColor = thisPiece.getColor();
-        PlayerColor opponentColor = Properties.oppositeColor(playerColor);
-        
-        Location startLocation;
-        Location nextLocation;
-
-        List<BiFunction<Location,Integer,Location>> locationDirections;
-        locationDirections = new ArrayList<>();
-        locationDirections.add(Location::upLeftX);
-        locationDirections.add(Location::upRightX);
-        locationDirections.add(Location::downLeftX);
-        locationDirections.add(Location::downRightX);
-
-        startLocation = Location.copy(location);
-        for (BiFunction<Location,Integer,Location> function : locationDirections)
-        {
-            int next = 1;
-            nextLocation = nextLocation(startLocation,next,function);
-            while ((nextLocation != null ) && boardState.isEmpty(nextLocation))
-            {
-                ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-                if (newMove != null)
-                {
-                    validMoves.add(newMove);
-                }
-                nextLocation = nextLocation(startLocation,next++,function);
-            }
-            if ((nextLocation != null) && !boardState.isEmpty(nextLocation))
-            {
-                ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-                if (newMove != null)
-                {
-                    validMoves.add(newMove);
-                }
-            }
-        }
-        
-        return validMoves;
+        return MoveGenerator.generateLegalMoves((ChessBoardState)boardState,location);
     }
         
     /**
-     * Creates a new bishop from deep-copy of this
-     * @return deep-copy of this bishop
+     * gets the piece-type index of a bishop
+     * @return ChessPiece.BISHOP
+     */
+    @Override
+    public int getType()
+    {
+        return BISHOP;
+    }
+    
+    /**
+     * gets a copy of this bishop: a bishop holds no state, so the copy is the shared bishop itself
+     * @return this bishop
      */
     @Override
     public Piece createCopy()
     {
-        PieceBishop newBishop = new PieceBishop(pieceColor);
-        newBishop.setProperties(getProperties());
-        newBishop.setNumMovesMade(getNumMovesMade());
-        newBishop.setMostRecentMove(getMostRecentMove());
-        return newBishop;
+        return this;
     }
     
     /**
-     * Creates a new bishop with parameter color
+     * gets the bishop of a color, shared by every board
      * @param pieceColor color for this bishop
-     * @return a newly constructed bishop
+     * @return the bishop of the color
      */
     public static Piece create(PlayerColor pieceColor)
     {
-        return new PieceBishop(pieceColor);
+        return (pieceColor == PlayerColor.RED) ? RED_BISHOP : BLACK_BISHOP;
     }
 }
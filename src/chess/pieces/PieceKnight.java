@@ -2,14 +2,12 @@ package chess.pieces;
 
 import chess.ChessBoardState;
 import chess.ChessGameHistory;
-import chess.moves.ChessMove;
+import chess.MoveGenerator;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
 import game.moves.Move;
 import game.utility.Location;
-import game.utility.Properties;
 import game.utility.Properties.PlayerColor;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -18,6 +16,8 @@ import java.util.List;
  * @author devang
  */
 public class PieceKnight extends ChessPiece {
+    private static final PieceKnight RED_KNIGHT   = new PieceKnight(PlayerColor.RED);
+    private static final PieceKnight BLACK_KNIGHT = new PieceKnight(PlayerColor.BLACK);
     
     private PieceKnight(PlayerColor pieceColor)
     {
@@ -27,6 +27,7 @@ public class PieceKnight extends ChessPiece {
     /**
      * gets a list of valid moves for the piece at the given location on the given board state<br>
      * - the piece at this location will be this knight<br>
+     * - generated by the MoveGenerator, which finds pins and checks once for the position<br>
      * @param location location for this knight on the board for which to determine all valid moves
      * @param boardState state of the board to analyze for current valid moves
      * @param gameHistory not-yet implemented, but intended for algebraic-chess-notation game recording
@@ -35,58 +36,36 @@ public class PieceKnight extends ChessPiece {
     @Override
     public List<Move> getValidMoves(Location location, BoardState boardState, ChessGameHistory gameHistory)
     {
-        List<Move> validMoves = new ArrayList<>();
-        if (location == null) return validMoves;
-        Piece thisPiece = boardState.getPiece(location);
-        if (!(thisPiece instanceof PieceKnight)) return validMoves;
-        PlayerColor playerColor = thisPiece.getColor();
-        PlayerColor opponentColor = Properties.oppositeColor(playerColor);
-        
-        Location startLocation = Location.copy(location);
-        
-        Location[] moveLocations = { Location.left(Location.up2(startLocation)),
-                                     Location.right(Location.up2(startLocation)),
-                                     Location.left(Location.down2(startLocation)),
-                                     Location.right(Location.down2(startLocation)),
-                                     Location.up(Location.left2(startLocation)),
-                                     Location.down(Location.left2(startLocation)),
-                                     Location.up(Location.right2(startLocation)),
-                                     Location.down(Location.right2(startLocation))};
-        
-        for (Location nextLocation : moveLocations)
-        {
-            startLocation = Location.copy(location);
-            ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-            if (newMove != null)
-            {
-                validMoves.add(newMove);
-            }
-        }
-        
-        return validMoves;
+        return MoveGenerator.generateLegalMoves((ChessBoardState)boardState,location);
     }
         
     /**
-     * Creates a new knight from deep-copy of this
-     * @return deep-copy of this knight
+     * gets the piece-type index of a knight
+     * @return ChessPiece.KNIGHT
+     */
+    @Override
+    public int getType()
+    {
+        return KNIGHT;
+    }
+    
+    /**
+     * gets a copy of this knight: a knight holds no state, so the copy is the shared knight itself
+     * @return this knight
      */
     @Override
     public Piece createCopy()
     {
-        PieceKnight newKnight = new PieceKnight(pieceColor);
-        newKnight.setProperties(getProperties());
-        newKnight.setNumMovesMade(getNumMovesMade());
-        newKnight.setMostRecentMove(getMostRecentMove());
-        return newKnight;
+        return this;
     }
     
     /**
-     * Creates a new knight with parameter color
+     * gets the knight of a color, shared by every board
      * @param pieceColor color for this knight
-     * @return a newly constructed knight
+     * @return the knight of the color
      */
     public static Piece create(PlayerColor pieceColor)
     {
-        return new PieceKnight(pieceColor);
+        return (pieceColor == PlayerColor.RED) ? RED_KNIGHT : BLACK_KNIGHT;
     }
 }
@@ -2,17 +2,14 @@ package chess.pieces;
 
 import chess.ChessBoardState;
 import chess.ChessGameHistory;
-import chess.moves.ChessMove;
+import chess.MoveGenerator;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
 import game.moves.Move;
 import game.utility.Location;
-import game.utility.Properties;
 import game.utility.Properties.PlayerColor;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.function.BiFunction;
 
 /**
  * Represents a Queen for Chess games
@@ -20,6 +17,8 @@ import java.util.function.BiFunction;
  * @author devang
  */
 public class PieceQueen extends ChessPiece {
+    private static final PieceQueen RED_QUEEN   = new PieceQueen(PlayerColor.RED);
+    private static final PieceQueen BLACK_QUEEN = new PieceQueen(PlayerColor.BLACK);
     
     private PieceQueen(PlayerColor pieceColor)
     {
@@ -29,6 +28,7 @@ public class PieceQueen extends ChessPiece {
     /**
      * gets a list of valid moves for the piece at the given location on the given board state<br>
      * - the piece at this location will be this queen<br>
+     * - generated by the MoveGenerator, which finds pins and checks once for the position<br>
      * @param location location for this queen on the board for which to determine all valid moves
      * @param boardState state of the board to analyze for current valid moves
      * @param gameHistory not-yet implemented, but intended for algebraic-chess-notation game recording
@@ -37,75 +37,36 @@ public class PieceQueen extends ChessPiece {
     @Override
     public List<Move> getValidMoves(Location location, BoardState boardState, ChessGameHistory gameHistory)
     {
-        List<Move> validMoves = new ArrayList<>();
-        if (location == null) return validMoves;
-        Piece thisPiece = boardState.getPiece(location);
-        if (!(thisPiece instanceof PieceQueen)) return validMoves;
-        PlayerColor playerColor = thisPiece.getColor();
-        PlayerColor opponentColor = Properties.oppositeColor(playerColor);
-        
-        Location startLocation;
-        Location nextLocation;
-
-        List<BiFunction<Location,Integer,Location>> locationDirections;
-        locationDirections = new ArrayList<>();
-        locationDirections.add(Location::leftX);
-        locationDirections.add(Location::rightX);
-        locationDirections.add(Location::upX);
-        locationDirections.add(Location::downX);
-        locationDirections.add(Location::upLeftX);
-        locationDirections.add(Location::upRightX);
-        locationDirections.add(Location::downLeftX);
-        locationDirections.add(Location::downRightX);
-
-        startLocation = Location.copy(location);
-        for (BiFunction<Location,Integer,Location> function : locationDirections)
-        {
-            int next = 1;
-            nextLocation = nextLocation(startLocation,next,function);
-            while ((nextLocation != null ) && boardState.isEmpty(nextLocation))
-            {
-                ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-                if (newMove != null)
-                {
-                    validMoves.add(newMove);
-                }
-                nextLocation = nextLocation(startLocation,next++,function);
-            }
-            if ((nextLocation != null) && !boardState.isEmpty(nextLocation))
-            {
-                ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-                if (newMove != null)
-                {
-                    validMoves.add(newMove);
-                }
-            }
-        }
-        
-        return validMoves;
+        return MoveGenerator.generateLegalMoves((ChessBoardState)boardState,location);
     }
         
     /**
-     * Creates a new queen from deep-copy of this
-     * @return deep-copy of this queen
+     * gets the piece-type index of a queen
+     * @return ChessPiece.QUEEN
+     */
+    @Override
+    public int getType()
+    {
+        return QUEEN;
+    }
+    
+    /**
+     * gets a copy of this queen: a queen holds no state, so the copy is the shared queen itself
+     * @return this queen
      */
     @Override
     public Piece createCopy()
     {
-        PieceQueen newQueen = new PieceQueen(pieceColor);
-        newQueen.setProperties(getProperties());
-        newQueen.setNumMovesMade(getNumMovesMade());
-        newQueen.setMostRecentMove(getMostRecentMove());
-        return newQueen;
+        return this;
     }
     
     /**
-     * Creates a new queen with parameter color
+     * gets the queen of a color, shared by every board
      * @param pieceColor color for this queen
-     * @return a newly constructed queen
+     * @return the queen of the color
      */
     public static Piece create(PlayerColor pieceColor)
     {
-        return new PieceQueen(pieceColor);
+        return (pieceColor == PlayerColor.RED) ? RED_QUEEN : BLACK_QUEEN;
     }
 }
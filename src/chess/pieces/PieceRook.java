@@ -2,17 +2,14 @@ package chess.pieces;
 
 import chess.ChessBoardState;
 import chess.ChessGameHistory;
-import chess.moves.ChessMove;
+import chess.MoveGenerator;
 import game.boardgame.BoardState;
 import game.boardgame.pieces.Piece;
 import game.moves.Move;
 import game.utility.Location;
-import game.utility.Properties;
 import game.utility.Properties.PlayerColor;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.function.BiFunction;
 
 /**
  * Represents a Rook for Chess games
@@ -20,6 +17,8 @@ import java.util.function.BiFunction;
  * @author devang
  */
 public class PieceRook extends ChessPiece {
+    private static final PieceRook RED_ROOK   = new PieceRook(PlayerColor.RED);
+    private static final PieceRook BLACK_ROOK = new PieceRook(PlayerColor.BLACK);
     
     private PieceRook(PlayerColor pieceColor)
     {
@@ -29,6 +28,7 @@ public class PieceRook extends ChessPiece {
     /**
      * gets a list of valid moves for the piece at the given location on the given board state<br>
      * - the piece at this location will be this rook<br>
+     * - generated by the MoveGenerator, which finds pins and checks once for the position<br>
      * @param location location for this rook on the board for which to determine all valid moves
      * @param boardState state of the board to analyze for current valid moves
      * @param gameHistory not-yet implemented, but intended for algebraic-chess-notation game recording
@@ -37,71 +37,36 @@ public class PieceRook extends ChessPiece {
     @Override
     public List<Move> getValidMoves(Location location, BoardState boardState, ChessGameHistory gameHistory)
     {
-        List<Move> validMoves = new ArrayList<>();
-        if (location == null) return validMoves;
-        Piece thisPiece = boardState.getPiece(location);
-        if (!(thisPiece instanceof PieceRook)) return validMoves;
-        PlayerColor playerColor = thisPiece.getColor();
-        PlayerColor opponentColor = Properties.oppositeColor(playerColor);
-        
-        Location startLocation;
-        Location nextLocation;
-
-        List<BiFunction<Location,Integer,Location>> locationDirections;
-        locationDirections = new ArrayList<>();
-        locationDirections.add(Location::leftX);
-        locationDirections.add(Location::rightX);
-        locationDirections.add(Location::upX);
-        locationDirections.add(Location::downX);
-
-        startLocation = Location.copy(location);
-        for (BiFunction<Location,Integer,Location> function : locationDirections)
-        {
-            int next = 1;
-            nextLocation = nextLocation(startLocation,next,function);
-            while ((nextLocation != null ) && boardState.isEmpty(nextLocation))
-            {
-                ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-                if (newMove != null)
-                {
-                    validMoves.add(newMove);
-                }
-                nextLocation = nextLocation(startLocation,next++,function);
-            }
-            if ((nextLocation != null) && !boardState.isEmpty(nextLocation))
-            {
-                ChessMove newMove = validateMove(startLocation,nextLocation,(ChessBoardState)boardState);
-                if (newMove != null)
-                {
-                    validMoves.add(newMove);
-                }
-            }
-        }
-        
-        return validMoves;
+        return MoveGenerator.generateLegalMoves((ChessBoardState)boardState,location);
     }
         
     /**
-     * Creates a new rook from deep-copy of this
-     * @return deep-copy of this rook
+     * gets the piece-type index of a rook
+     * @return ChessPiece.ROOK
+     */
+    @Override
+    public int getType()
+    {
+        return ROOK;
+    }
+    
+    /**
+     * gets a copy of this rook: a rook holds no state, so the copy is the shared rook itself
+     * @return this rook
      */
     @Override
     public Piece createCopy()
     {
-        PieceRook newRook = new PieceRook(pieceColor);
-        newRook.setProperties(getProperties());
-        newRook.setNumMovesMade(getNumMovesMade());
-        newRook.setMostRecentMove(getMostRecentMove());
-        return newRook;
+        return this;
     }
     
     /**
-     * Creates a new rook with parameter color
+     * gets the rook of a color, shared by every board
      * @param pieceColor color for this rook
-     * @return a newly constructed rook
+     * @return the rook of the color
      */
     public static Piece create(PlayerColor pieceColor)
     {
-        return new PieceRook(pieceColor);
+        return (pieceColor == PlayerColor.RED) ? RED_ROOK : BLACK_ROOK;
     }
 }
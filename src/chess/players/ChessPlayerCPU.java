@@ -2,32 +2,48 @@ package chess.players;
 
 import chess.ChessBoardState;
 import chess.ChessGame;
-import chess.moves.ChessMove;
-import chess.pieces.ChessPiece;
+import chess.ChessGameHistory;
+import chess.moves.PackedMove;
 import chess.players.ai.ChessAI;
+import chess.players.ai.ChessSearch;
+import chess.players.ai.TranspositionTable;
 import game.Game;
 import game.boardgame.BoardState;
 import game.boardgame.players.BoardGamePlayerCPU;
 import game.moves.Move;
-import game.utility.Location;
-import game.utility.Properties;
 import game.utility.Properties.PlayerColor;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Inherits from a PlayerCPU, a Board Game Player CPU to provide same
  * interface for a phantom AI player
- * and same interface across any game: Checkers, Chess, Othello, Poker, Chinese-Checkers, etc.
+ * and same interface across any game: Checkers, Chess, Othello, Poker, Chinese-Checkers, etc.<br>
+ * - with ChessAI.ponder, it searches on the opponent's time: after its move, the position
+ *   after the reply its search expects is searched until the opponent moves; on that reply
+ *   (a ponder hit) the search goes on, warm, and its move is played with little or no wait,
+ *   on any other (a ponder miss) it is stopped, and the position is searched as before
  * @author devang
  */
 public class ChessPlayerCPU extends BoardGamePlayerCPU {
+    private static final long PONDER_TIME = Integer.MAX_VALUE; // until the opponent moves
+    
+    private final TranspositionTable transpositionTable;
+    private final ChessSearch        search;
+    
+    // pondering: the search of the position after the expected reply, on its own thread
+    private Thread           ponderThread;   // null if not pondering
+    private long             ponderKey;      // hash key of the position pondered
+    private long             ponderStart;
+    private volatile Move    ponderMove;
+    private volatile long    ponderDeadline; // set on a ponder hit, 0 until then
+    private volatile boolean ponderMissed;
     
     private ChessPlayerCPU(Game game, PlayerColor color)
     {
         super(game,color);
+        transpositionTable = TranspositionTable.create(ChessAI.hashSizeMB);
+        search = ChessSearch.create(color,transpositionTable);
     }
     
     /**
@@ -66,9 +82,20 @@ public class ChessPlayerCPU extends BoardGamePlayerCPU {
         super.commitMove(move);
     }
     
+    /**
+     * stops pondering when the game ends
+     */
+    @Override
+    public void terminate()
+    {
+        stopPondering(false);
+        super.terminate();
+    }
+    
     public Move makeNextMove()
     {
-        Move move = evaluateBestMove();
+        Move move = stopPondering(true);
+        if (move == null) move = evaluateBestMove();
         if (move == null)
         {
             System.err.println("ERROR: no valid moves possible");
@@ -76,109 +103,117 @@ public class ChessPlayerCPU extends BoardGamePlayerCPU {
         else
         {
             commitMove(move);
+            startPondering();
         }
         return move;
     }
     
-    private int evaluateScore(ChessBoardState boardState)
+    /**
+     * searches for the best move from the current game board state<br>
+     * - the search commits and undoes moves on one private copy of the board,
+     *   so the official board state is never touched while searching<br>
+     * - deepens one ply at a time until ChessAI.maxDepth or ChessAI.maxTime is reached,
+     *   keeping results in a transposition table between iterations and between turns<br>
+     * - the root moves are the game's legal moves of the position, generated once
+     * @return best move found, null if there are no valid moves
+     */
+    private Move evaluateBestMove()
     {
-        return ChessAI.evaluate(boardState,getColor());
+        ChessGame chessGame = (ChessGame)game;
+        ChessBoardState boardState = (ChessBoardState)BoardState.copy(chessGame.getBoardState());
+        return search.search(boardState,chessGame.getGameHistory(),chessGame.getLegalMoves(),
+                             ChessAI.maxDepth,ChessAI.maxTime);
     }
     
-    public class MoveScore {
-        public Move move;
-        public int score;
+    /**
+     * starts searching, on the opponent's time, the position after the reply the last
+     * search expects<br>
+     * - the search runs on copies of the board and of the game history, with no time limit
+     */
+    private void startPondering()
+    {
+        ChessGame chessGame = (ChessGame)game;
+        if (!ChessAI.ponder || chessGame.checkGameOver()) return;
         
-        public MoveScore(Move move, int score)
-        {
-            this.move  = move;
-            this.score = score;
-        }
+        int reply = getExpectedReply(chessGame);
+        if (reply == PackedMove.NO_MOVE) return;
+        
+        ChessBoardState  boardState  = (ChessBoardState)BoardState.copy(chessGame.getBoardState());
+        ChessGameHistory gameHistory = ChessGameHistory.copy(chessGame.getGameHistory());
+        boardState.makeMove(reply);
+        gameHistory.addPosition(boardState);
+        
+        ponderKey      = boardState.getHashKey();
+        ponderStart    = System.currentTimeMillis();
+        ponderMove     = null;
+        ponderDeadline = 0L;
+        ponderMissed   = false;
+        search.setListener(this::ponderIterationCompleted);
+        ponderThread = new Thread(() -> ponderMove = search.search(boardState,gameHistory,ChessAI.maxDepth,PONDER_TIME));
+        ponderThread.setDaemon(true);
+        ponderThread.start();
     }
     
-    private MoveScore alphaBeta(int depth, int alpha, int beta, PlayerColor playerColor, ChessBoardState boardState)
+    /**
+     * stops searching on the opponent's time<br>
+     * - on a ponder hit, the position on the board is the one pondered: the search is
+     *   given until ChessAI.maxTime from when it started, so the opponent's time is free<br>
+     * - otherwise it is stopped at the next position it visits
+     * @param opponentMoved true if the opponent has moved, and a ponder hit can be played
+     * @return best move of the search on a ponder hit, null otherwise
+     */
+    private Move stopPondering(boolean opponentMoved)
     {
-        if (depth == 0) return new MoveScore(null,evaluateScore(boardState));
-        
-        List<Move> validMoves = getValidMoves(boardState,playerColor);
-        if (validMoves == null) return new MoveScore(null,evaluateScore(boardState));
+        if (ponderThread == null) return null;
         
-        // maximizing
-        if (playerColor == this.getColor())
+        boolean hit = opponentMoved && (((ChessGame)game).getBoardState().getHashKey() == ponderKey);
+        if (hit)
         {
-            int bestScore = Integer.MIN_VALUE;
-            Move bestMove = null;
-            
-            for (Move move : validMoves)
-            {
-                ChessBoardState tempBoardState = (ChessBoardState)BoardState.copy(boardState);
-                ((ChessMove)move).commitMove(tempBoardState);
-                
-                MoveScore moveScorePair = alphaBeta(depth-1,alpha,beta,Properties.oppositeColor(playerColor),tempBoardState);
-                int score = moveScorePair.score;
-                
-                if (score > bestScore)
-                {
-                    bestScore = score;
-                    bestMove  = move;
-                }
-                alpha = Math.max(alpha,score);
-                
-                if (alpha >= beta) break;
-            }
-            return new MoveScore(bestMove,bestScore);
+            ponderDeadline = ponderStart + ChessAI.maxTime;
+            search.setDeadline(ponderDeadline);
         }
-        // minimizing
-        else //playerColor == Properties.oppositeColor(this.getColor())
+        else
         {
-            int bestScore = Integer.MAX_VALUE;
-            Move bestMove = null;
-            
-            for (Move move : validMoves)
-            {
-                ChessBoardState tempBoardState = (ChessBoardState)BoardState.copy(boardState);
-                ((ChessMove)move).commitMove(tempBoardState);
-                
-                MoveScore moveScorePair = alphaBeta(depth-1,alpha,beta,Properties.oppositeColor(playerColor),tempBoardState);
-                int score = moveScorePair.score;
-                
-                if (score < bestScore)
-                {
-                    bestScore = score;
-                    bestMove  = move;
-                }
-                
-                beta = Math.min(beta,score);
-                
-                if (alpha >= beta) break;
-            }
-            return new MoveScore(bestMove,bestScore);
+            ponderMissed = true;
+            search.stop();
+        }
+        
+        try {
+            ponderThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
+        ponderThread = null;
+        search.setListener(null);
+        
+        String loggerMsg = hit ? "ponder hit" : "ponder miss";
+        Logger.getLogger(ChessPlayerCPU.class.getName()).log(Level.FINE,loggerMsg);
+        return hit ? ponderMove : null;
     }
     
-    private Move evaluateBestMove()
+    // a stop or deadline sent before the ponder search had started is applied after its first iteration
+    private void ponderIterationCompleted(ChessSearch ponderSearch)
     {
-        MoveScore moveScorePair = alphaBeta(ChessAI.maxDepth,Integer.MIN_VALUE,Integer.MAX_VALUE,this.getColor(),((ChessGame)game).getBoardState());
-        return moveScorePair.move;
+        if (ponderMissed)              ponderSearch.stop();
+        else if (ponderDeadline != 0L) ponderSearch.setDeadline(ponderDeadline);
     }
-
-        
-    private List<Move> getValidMoves(ChessBoardState boardState,PlayerColor playerColor)
+    
+    /**
+     * gets the opponent's reply the last search expects: the second move of its principal
+     * variation, or the hash move of the position if the variation stops at the first
+     * @param chessGame game, with the opponent to move
+     * @return packed legal move of the opponent, NO_MOVE if none is expected
+     */
+    private int getExpectedReply(ChessGame chessGame)
     {
-        List<Move> validMoves = new ArrayList<>();
-        List<Move> moves      = null;
+        int[] pv    = search.getPrincipalVariation();
+        int   reply = (pv.length > 1) ? pv[1]
+                    : TranspositionTable.getMove(transpositionTable.probe(chessGame.getBoardState().getHashKey()));
         
-        for (Location location : Location.allLocations())
+        for (int move : chessGame.getLegalMoves())
         {
-            ChessPiece piece = (ChessPiece)boardState.getPiece(location);
-            if (piece != null && playerColor.equals(piece.getColor()))
-            {
-                moves = piece.getValidMoves(location,boardState,((ChessGame)game).getGameHistory());
-                if (moves != null && !moves.isEmpty())
-                    validMoves.addAll(moves);
-            }
+            if (move == reply) return reply;
         }
-        
-        return validMoves;
+        return PackedMove.NO_MOVE;
     }
 }
@@ -1,10 +1,8 @@
 package chess.players;
 
-import chess.ChessBoardState;
 import chess.ChessGame;
 import chess.gui.ChessGraphicsBoard;
 import chess.moves.ChessMove;
-import chess.pieces.ChessPiece;
 import game.Game;
 import game.boardgame.pieces.Piece;
 import game.boardgame.players.BoardGamePlayerHuman;
@@ -48,9 +46,7 @@ public class ChessPlayerHuman extends BoardGamePlayerHuman {
     @Override
     protected List<Move> getValidMoves(Location location)
     {
-        ChessBoardState boardState = (ChessBoardState)((ChessGame)game).getBoardState();
-        ChessPiece      piece      = (ChessPiece)boardState.getPiece(location);
-        return piece.getValidMoves(location, boardState, ((ChessGame)game).getGameHistory());
+        return ((ChessGame)game).getLegalMoves(location);
     }
     
     protected Map<Location,Move> getValidMoves(List<Move> moves)
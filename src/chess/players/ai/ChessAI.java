@@ -1,15 +1,10 @@
 package chess.players.ai;
 
 import chess.ChessBoardState;
-import chess.pieces.ChessPiece;
-import chess.pieces.PieceBishop;
-import chess.pieces.PieceKnight;
-import chess.pieces.PiecePawn;
-import chess.pieces.PieceQueen;
-import chess.pieces.PieceRook;
-import chess.pieces.PieceKing;
-import game.utility.Location;
+import chess.ChessRules;
+import chess.PieceSquareTables;
 import game.utility.Properties.PlayerColor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -18,47 +13,56 @@ import game.utility.Properties.PlayerColor;
 public class ChessAI {
     public static int maxDepth = 3;
     public static int maxTime = 10000;
+    public static int hashSizeMB = 16; // memory budget of the transposition table
+    public static int searchThreads = 1; // threads splitting the root moves: 1 searches serially
+    public static int helperThreads = 0; // Lazy SMP threads searching alongside, sharing the hash table
+    public static boolean principalVariation = true; // PVS with null windows; false: full-window alpha-beta
+    public static int aspirationWindow = 25; // half-width of the first root window around the last score, 0: full window
+    public static boolean nullMovePruning = true; // principal variation search: cut off when passing still beats beta
+    public static boolean lateMoveReductions = true; // principal variation search: search late quiet moves shallower
+    public static boolean ponder = true; // search the position after the expected reply on the opponent's time
     
-    public static int evaluate(ChessBoardState boardState,PlayerColor playerColor)
+    private static ForkJoinPool searchPool = null;
+    
+    /**
+     * gets the thread pool shared by all parallel Chess searches<br>
+     * - the pool is replaced when searchThreads changes
+     * @return pool with searchThreads threads
+     */
+    public static synchronized ForkJoinPool getSearchPool()
     {
-        int score = 0;
-        
-        for (Location location : Location.allLocations())
+        int threads = Math.max(1,searchThreads);
+        if ((searchPool == null) || (searchPool.getParallelism() != threads))
         {
-            ChessPiece piece = (ChessPiece)boardState.getPiece(location);
-            score += scorePieceValue(piece,playerColor);
+            if (searchPool != null) searchPool.shutdown();
+            searchPool = new ForkJoinPool(threads);
         }
-        
-        return score;
+        return searchPool;
     }
     
-    private static int scorePieceValue(ChessPiece piece,PlayerColor playerColor)
+    /**
+     * gets the material value of a kind of piece
+     * @param type piece-type index (ChessPiece.PAWN ... ChessPiece.KING)
+     * @return material value of the piece, in centipawns
+     */
+    public static int getPieceValue(int type)
     {
-        int score = 0;
-        
-        if (piece == null)
-        {
-            // do nothing
-        }
-        else if (!piece.getColor().equals(playerColor))
-        {
-            if (piece instanceof PiecePawn) score -= 10;
-            if (piece instanceof PieceKnight) score -= 30;
-            if (piece instanceof PieceBishop) score -= 30;
-            if (piece instanceof PieceRook) score -= 50;
-            if (piece instanceof PieceQueen) score -= 90;
-            if (piece instanceof PieceKing) score -= 900;
-        }
-        else if (piece.getColor().equals(playerColor))
-        {
-            if (piece instanceof PiecePawn) score += 10;
-            if (piece instanceof PieceKnight) score += 30;
-            if (piece instanceof PieceBishop) score += 30;
-            if (piece instanceof PieceRook) score += 50;
-            if (piece instanceof PieceQueen) score += 90;
-            if (piece instanceof PieceKing) score += 900;
-        }
-        
-        return score;
+        return PieceSquareTables.getPieceValue(type);
+    }
+    
+    /**
+     * scores the board from the point of view of a player: material and piece placement<br>
+     * - reads the middlegame and endgame scores the board state keeps up-to-date as
+     *   moves are made and undone, and tapers them by the game phase: no piece is visited
+     * @param boardState state of the board to score
+     * @param playerColor color of the player for which to score the board
+     * @return score of the player minus score of the opponent, in centipawns
+     */
+    public static int evaluate(ChessBoardState boardState,PlayerColor playerColor)
+    {
+        PlayerColor opponentColor = ChessRules.oppositeColor(playerColor);
+        int middlegame = boardState.getMiddlegameScore(playerColor) - boardState.getMiddlegameScore(opponentColor);
+        int endgame    = boardState.getEndgameScore(playerColor)    - boardState.getEndgameScore(opponentColor);
+        return PieceSquareTables.taper(middlegame,endgame,boardState.getPhase());
     }
 }
@@ -0,0 +1,949 @@
+package chess.players.ai;
+
+import chess.ChessBoardState;
+import chess.ChessGameHistory;
+import chess.ChessRules;
+import chess.MoveGenerator;
+import chess.StaticExchange;
+import chess.moves.PackedMove;
+import chess.pieces.ChessPiece;
+import game.boardgame.BoardState;
+import game.moves.Move;
+import game.utility.Properties.PlayerColor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * time-bounded iterative-deepening alpha-beta search for a Chess CPU player<br>
+ * - searches depth 1, 2, 3... up to ChessAI.maxDepth, until the time budget runs out<br>
+ * - an iteration cut off by the deadline is thrown away: the best move of the last
+ *   completed iteration is returned<br>
+ * - the principal variation of each iteration is searched first in the next one,
+ *   and results are shared with later iterations through the transposition table<br>
+ * - the other moves are ordered by MoveOrdering: hash move, MVV-LVA captures, killers, history<br>
+ * - at the horizon, a quiescence search plays out captures only, so a leaf is never
+ *   scored in the middle of an exchange<br>
+ * - scores are from the point of view of the searching player: it maximizes,
+ *   its opponent minimizes<br>
+ * - the transposition table keeps scores from the point of view of the side to move
+ *   of each position, so searches for either color can share one table<br>
+ * - with ChessAI.principalVariation, the tree is searched by principal variation search
+ *   instead (negamax: scores from the point of view of the side to move); only the first
+ *   move of a position gets the full window, the others are searched with a null window
+ *   and searched again with the full window if they turn out better<br>
+ * - the principal variation search is also selective: with ChessAI.nullMovePruning, a
+ *   position still above beta after passing the move is cut off from a shallower search;
+ *   with ChessAI.lateMoveReductions, quiet moves late in the ordering are first searched
+ *   to a reduced depth, and only searched fully if they beat alpha<br>
+ * - with ChessAI.aspirationWindow above 0, each iteration starts from a narrow window
+ *   around the score of the previous one, widened on the side that fails<br>
+ * - a checkmate scores MATE_SCORE less the distance in plies, so shorter mates score
+ *   higher; a stalemate scores 0<br>
+ * - so does a draw by rule: a position that repeats one earlier on the line searched, or
+ *   played earlier in the game (once is enough: a side that gains by repeating can
+ *   repeat again), and a position after fifty moves without a capture or pawn move<br>
+ * - with ChessAI.searchThreads above 1, the first root move is searched serially, and the
+ *   remaining root moves are split across the shared pool, each on its own board copy,
+ *   raising a shared alpha as they finish; with 1 thread the search is fully deterministic<br>
+ * - with ChessAI.helperThreads above 0 (Lazy SMP), helper searches run the same iterative
+ *   deepening on their own board copies at staggered depths, feeding the shared
+ *   transposition table; only this search's result is reported
+ * @author devang
+ */
+public class ChessSearch {
+    public static final int MAX_PLY = 64;
+
+    public  static final int MATE_SCORE = 100000;
+    private static final int MATE_BOUND = MATE_SCORE - MAX_PLY; // scores beyond this are mates
+    private static final int INFINITY   = MATE_SCORE + 1;
+
+    // nodes searched between checks of the clock
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    // delta pruning: a capture is skipped if even this much over the victim's value can not reach the bound
+    private static final int DELTA_MARGIN = 200;
+
+    // null-move pruning: shallowest depth tried, and the game phase at or below which a
+    // null-move cutoff is verified by a reduced search (zugzwang is likelier in endgames)
+    private static final int NULL_MOVE_MIN_DEPTH    = 3;
+    private static final int NULL_MOVE_VERIFY_PHASE = 8;
+
+    // late move reductions: shallowest depth reduced, and number of moves searched fully first
+    private static final int LMR_MIN_DEPTH  = 3;
+    private static final int LMR_FULL_MOVES = 3;
+    private static final int[][] LMR_REDUCTIONS = new int[MAX_PLY][MAX_PLY]; // [depth][move number]
+
+    static
+    {
+        for (int depth = 1; depth < MAX_PLY; depth++)
+            for (int moveNumber = 1; moveNumber < MAX_PLY; moveNumber++)
+                LMR_REDUCTIONS[depth][moveNumber] = (int)(0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+    }
+
+    private final PlayerColor        playerColor;
+    private final TranspositionTable transpositionTable;
+    private final ChessSearch        parent; // search that started this one, null if none
+    private final boolean            helper; // a Lazy SMP helper: stops with its parent, never stops it
+
+    private ChessBoardState  boardState;
+    private ChessGameHistory gameHistory;
+    private int              historyLength; // positions of gameHistory up to the root, 0 if it does not end at the root
+    private int[]            rootMoves;     // packed legal moves of the root, generated once per search
+
+    // hash keys of the positions on the line being searched, indexed by ply
+    private final long[] pathKeys;
+
+    // triangular principal-variation table of packed moves, indexed by ply
+    private final int[][] pvTable;
+    private final int[]   pvLength;
+    private final int[]   previousPv;
+    private int           previousPvLength;
+    private boolean       followPv;
+
+    private final MoveOrdering moveOrdering;
+
+    private Listener listener; // told of each completed iteration, null if none
+
+    // packed moves and their ordering scores, one array per ply, reused from node to node
+    private final int[][] moveStack;
+    private final int[][] scoreStack;
+
+    private volatile long    deadline;
+    private volatile boolean stopped;
+    private long     nodes;
+    private int      completedDepth;
+    private int      bestScore;
+    private int      bestMove;          // packed
+    private int      iterationBestMove; // packed
+
+    // set on a search that split off a root move: the alpha it started from, and its score
+    private int      rootAlpha;
+    private int      rootScore;
+
+    private ChessSearch(PlayerColor playerColor, TranspositionTable transpositionTable, ChessSearch parent, boolean helper)
+    {
+        this.playerColor        = playerColor;
+        this.transpositionTable = transpositionTable;
+        this.parent             = parent;
+        this.helper             = helper;
+
+        pvTable    = new int[MAX_PLY][MAX_PLY];
+        pvLength   = new int[MAX_PLY];
+        previousPv = new int[MAX_PLY];
+        pathKeys   = new long[MAX_PLY];
+
+        moveOrdering = new MoveOrdering();
+        moveStack    = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+        scoreStack   = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    }
+
+    /**
+     * creates a search for a player, in Object factory fashion
+     * @param playerColor color of the player for which to search: the maximizing player
+     * @param transpositionTable table in which to keep search results between searches
+     * @return newly-created search
+     */
+    public static ChessSearch create(PlayerColor playerColor, TranspositionTable transpositionTable)
+    {
+        return new ChessSearch(playerColor,transpositionTable,null,false);
+    }
+
+    /**
+     * searches for the best move of the player in a position, deepening one ply at a time<br>
+     * - the first iteration always completes, so a move is found even with no time left
+     * @param boardState state of the board to search: moves are committed and undone on it
+     * @param gameHistory history of the game
+     * @param maxDepth deepest iteration to search
+     * @param maxTime time budget for the search, in milliseconds
+     * @return best move of the last completed iteration, null if there are no valid moves
+     */
+    public Move search(ChessBoardState boardState, ChessGameHistory gameHistory, int maxDepth, long maxTime)
+    {
+        return search(boardState,gameHistory,null,maxDepth,maxTime);
+    }
+
+    /**
+     * searches for the best move of the player in a position, from its legal moves
+     * already generated, as the game keeps them (see ChessGame.getLegalMoves)<br>
+     * - every iteration reuses the root moves, instead of generating them again
+     * @param boardState state of the board to search: moves are committed and undone on it
+     * @param gameHistory history of the game
+     * @param rootMoves packed legal moves of the player in the position, null to generate them
+     * @param maxDepth deepest iteration to search
+     * @param maxTime time budget for the search, in milliseconds
+     * @return best move of the last completed iteration, null if there are no valid moves
+     */
+    public Move search(ChessBoardState boardState, ChessGameHistory gameHistory, int[] rootMoves, int maxDepth, long maxTime)
+    {
+        this.boardState  = boardState;
+        this.gameHistory = gameHistory;
+
+        if (rootMoves == null)
+        {
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            rootMoves = Arrays.copyOf(moves,MoveGenerator.generateMoves(boardState,playerColor,moves));
+        }
+        this.rootMoves = rootMoves;
+
+        historyLength = 0;
+        if ((gameHistory != null) && (gameHistory.getNumPositions() > 0)
+                && (gameHistory.getPositionKey(gameHistory.getNumPositions()-1) == boardState.getHashKey()))
+            historyLength = gameHistory.getNumPositions();
+
+        deadline         = System.currentTimeMillis() + maxTime;
+        stopped          = false;
+        nodes            = 0;
+        completedDepth   = 0;
+        bestScore        = 0;
+        bestMove         = PackedMove.NO_MOVE;
+        previousPvLength = 0;
+        moveOrdering.clear();
+        transpositionTable.newSearch();
+
+        List<ChessSearch> helpers = new ArrayList<>();
+        List<Thread>      threads = new ArrayList<>();
+        for (int i = 0; i < ChessAI.helperThreads; i++)
+        {
+            ChessSearch helperSearch = new ChessSearch(playerColor,transpositionTable,this,true);
+            helperSearch.boardState    = (ChessBoardState)BoardState.copy(boardState);
+            helperSearch.gameHistory   = gameHistory;
+            helperSearch.historyLength = historyLength;
+            helperSearch.rootMoves     = rootMoves;
+
+            // odd helpers start one ply deeper, so threads spread over two depths at a time
+            int firstDepth = 1 + ((i + 1) % 2);
+            Thread thread = new Thread(() -> helperSearch.deepen(firstDepth,maxDepth));
+            thread.setDaemon(true);
+            thread.start();
+            helpers.add(helperSearch);
+            threads.add(thread);
+        }
+
+        deepen(1,maxDepth);
+
+        for (ChessSearch helperSearch : helpers)
+            helperSearch.stopped = true;
+        for (int i = 0; i < threads.size(); i++)
+        {
+            try {
+                threads.get(i).join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            nodes += helpers.get(i).nodes;
+        }
+
+        return PackedMove.toChessMove(bestMove);
+    }
+
+    /**
+     * runs the iterations of a search, keeping the result of each completed one
+     * @param firstDepth depth of the first iteration
+     * @param maxDepth deepest iteration to search
+     */
+    private void deepen(int firstDepth, int maxDepth)
+    {
+        for (int depth = firstDepth; depth <= Math.min(maxDepth,MAX_PLY-1); depth++)
+        {
+            int score = aspirationSearch(depth);
+
+            if (isStopped()) break;
+
+            completedDepth = depth;
+            bestScore      = score;
+            bestMove       = iterationBestMove;
+            previousPvLength = pvLength[0];
+            System.arraycopy(pvTable[0],0,previousPv,0,previousPvLength);
+            if ((listener != null) && (parent == null)) listener.iterationCompleted(this);
+
+            if ((bestMove == PackedMove.NO_MOVE) || isStopped()) break;
+        }
+    }
+
+    /**
+     * searches an iteration from a window around the score of the previous iteration:<br>
+     * - a score outside the window is only a bound, so the window is widened on that
+     *   side, by twice as much each time, and the iteration is searched again
+     * @param depth depth of this iteration
+     * @return score of the iteration
+     */
+    private int aspirationSearch(int depth)
+    {
+        int delta = ChessAI.aspirationWindow;
+        int alpha = -INFINITY;
+        int beta  = INFINITY;
+        if ((delta > 0) && (completedDepth > 0) && (Math.abs(bestScore) < MATE_BOUND))
+        {
+            alpha = Math.max(bestScore - delta,-INFINITY);
+            beta  = Math.min(bestScore + delta,INFINITY);
+        }
+
+        while (true)
+        {
+            followPv          = true;
+            iterationBestMove = PackedMove.NO_MOVE;
+            int score = searchRoot(depth,alpha,beta);
+            if (isStopped()) return score;
+
+            if ((score <= alpha) && (alpha > -INFINITY))     alpha = Math.max(alpha - delta,-INFINITY);
+            else if ((score >= beta) && (beta < INFINITY))   beta  = Math.min(beta + delta,INFINITY);
+            else return score;
+            delta *= 2;
+        }
+    }
+
+    private int searchRoot(int depth, int alpha, int beta)
+    {
+        if (ChessAI.principalVariation) return principalVariation(depth,0,alpha,beta,playerColor,false);
+        return alphaBeta(depth,0,alpha,beta,playerColor);
+    }
+
+    /**
+     * searches a position after a root move, scored from the point of view of the player
+     * @param depth remaining depth of the position
+     * @param alpha lower bound of the search window
+     * @param beta upper bound of the search window
+     * @return score of the position
+     */
+    private int searchRootChild(int depth, int alpha, int beta)
+    {
+        PlayerColor opponentColor = ChessRules.oppositeColor(playerColor);
+        if (ChessAI.principalVariation) return -principalVariation(depth,1,-beta,-alpha,opponentColor,true);
+        return alphaBeta(depth,1,alpha,beta,opponentColor);
+    }
+
+    /**
+     * receives the result of each iteration of a search as it completes, as a UCI front end
+     * reports it; it is called on the searching thread, and must return quickly
+     */
+    public interface Listener {
+        void iterationCompleted(ChessSearch search);
+    }
+
+    /**
+     * sets the listener told of each iteration this search completes
+     * @param listener listener to call, null for none
+     */
+    public void setListener(Listener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * gets the principal variation of the last completed iteration: the best move, and the
+     * replies expected to it
+     * @return newly-created array of packed moves, from the root
+     */
+    public int[] getPrincipalVariation()
+    {
+        return Arrays.copyOf(previousPv,previousPvLength);
+    }
+
+    /**
+     * gets the deepest iteration the last search completed
+     * @return depth of the last completed iteration
+     */
+    public int getCompletedDepth()
+    {
+        return completedDepth;
+    }
+
+    /**
+     * gets the score of the best move of the last search
+     * @return score of the last completed iteration
+     */
+    public int getScore()
+    {
+        return bestScore;
+    }
+
+    /**
+     * gets the number of positions visited by the last search
+     * @return number of nodes searched
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * gets the effective branching factor of the last search: the number of nodes
+     * searched, taken to the root of the depth completed
+     * @return average number of moves searched per position
+     */
+    public double getEffectiveBranchingFactor()
+    {
+        if (completedDepth == 0) return 0.0;
+        return Math.pow(nodes,1.0 / completedDepth);
+    }
+
+    // scores from the point of view of the player: those of the transposition table are
+    // turned around at the positions where its opponent is to move
+    private int alphaBeta(int depth, int ply, int alpha, int beta, PlayerColor sideToMove)
+    {
+        pvLength[ply] = ply;
+        if (depth == 0) return quiescence(ply,alpha,beta,sideToMove);
+
+        if (countNode()) return 0;
+        if (ply >= MAX_PLY-1) return ChessAI.evaluate(boardState,playerColor);
+
+        long hashKey = boardState.getHashKey();
+        pathKeys[ply] = hashKey;
+        if ((ply > 0) && isDraw(ply,hashKey,sideToMove)) return 0;
+
+        boolean maximizing = (sideToMove == playerColor);
+        long hashEntry = transpositionTable.probe(hashKey);
+        if ((hashEntry != 0L) && (ply > 0) && (TranspositionTable.getDepth(hashEntry) >= depth))
+        {
+            int hashScore = fromHashScore(TranspositionTable.getScore(hashEntry),ply);
+            int hashBound = TranspositionTable.getBound(hashEntry);
+            if (!maximizing)
+            {
+                hashScore = -hashScore;
+                hashBound = flipBound(hashBound);
+            }
+            switch (hashBound)
+            {
+                case TranspositionTable.EXACT:
+                    return hashScore;
+                case TranspositionTable.LOWER_BOUND:
+                    alpha = Math.max(alpha,hashScore);
+                    break;
+                case TranspositionTable.UPPER_BOUND:
+                    beta = Math.min(beta,hashScore);
+                    break;
+            }
+            if (alpha >= beta) return hashScore;
+        }
+
+        int pvMove = TranspositionTable.NO_MOVE;
+        if (followPv)
+        {
+            if (ply < previousPvLength) pvMove   = previousPv[ply];
+            else                        followPv = false;
+        }
+
+        int[]   moves      = moveStack[ply];
+        int     count      = generateMoves(ply,sideToMove,moves);
+        if (count == 0)
+        {
+            int score = terminalScore(ply,sideToMove);
+            return maximizing ? score : -score;
+        }
+        moveOrdering.order(moves,scoreStack[ply],count,boardState,ply,pvMove,TranspositionTable.getMove(hashEntry),sideToMove);
+
+        if ((ply == 0) && (parent == null) && (ChessAI.searchThreads > 1) && (count > 1))
+            return splitRoot(depth,alpha,beta,moves,count,hashKey);
+
+        int     alphaOriginal = alpha;
+        int     betaOriginal  = beta;
+        int     best          = maximizing ? -INFINITY : INFINITY;
+        int     bestNodeMove  = PackedMove.NO_MOVE;
+
+        for (int i = 0; i < count; i++)
+        {
+            int move = moves[i];
+            boardState.makeMove(move);
+            int score = alphaBeta(depth-1,ply+1,alpha,beta,ChessRules.oppositeColor(sideToMove));
+            boardState.unmakeMove(move);
+            followPv = false;
+            if (isStopped()) return 0;
+
+            if (maximizing ? (score > best) : (score < best))
+            {
+                best         = score;
+                bestNodeMove = move;
+                updatePv(ply,move);
+            }
+
+            if (maximizing) alpha = Math.max(alpha,score);
+            else            beta  = Math.min(beta,score);
+
+            if (alpha >= beta)
+            {
+                moveOrdering.cutoff(move,boardState,ply,depth,sideToMove);
+                break;
+            }
+        }
+
+        int bound = TranspositionTable.EXACT;
+        if (best <= alphaOriginal)     bound = TranspositionTable.UPPER_BOUND;
+        else if (best >= betaOriginal) bound = TranspositionTable.LOWER_BOUND;
+        if (maximizing) transpositionTable.store(hashKey,depth,bound,toHashScore(best,ply),bestNodeMove);
+        else            transpositionTable.store(hashKey,depth,flipBound(bound),toHashScore(-best,ply),bestNodeMove);
+
+        if (ply == 0) iterationBestMove = bestNodeMove;
+        return best;
+    }
+
+    /**
+     * principal variation search (negamax): scores are from the point of view of the side to move<br>
+     * - the first move, expected best after ordering, is searched with the full window<br>
+     * - every later move is searched with a null window (alpha, alpha+1), which only
+     *   proves it is no better than alpha, and cuts off much sooner; if it fails high,
+     *   it is searched again with the full window for its exact score<br>
+     * - the transposition table keeps scores from the point of view of the side to move,
+     *   as they are searched here: alphaBeta turns them around where it minimizes<br>
+     * - null-move pruning: away from the principal variation, if passing the move still
+     *   scores at least beta from a search R plies shallower, the position is cut off;
+     *   the side to move must have a piece besides pawns, and near the endgame the
+     *   cutoff is only taken if a reduced search without the null move confirms it<br>
+     * - late move reductions: quiet moves after the first few, in positions not in check,
+     *   are searched with a depth reduced by the move number and the remaining depth;
+     *   a move that beats alpha anyway is searched again at full depth
+     * @param depth remaining depth of the position
+     * @param ply distance of the position from the root
+     * @param alpha lower bound of the search window
+     * @param beta upper bound of the search window
+     * @param sideToMove color of the player to move
+     * @param allowNullMove false right after a null move, and in a verification search
+     * @return score of the position, for the side to move
+     */
+    private int principalVariation(int depth, int ply, int alpha, int beta, PlayerColor sideToMove, boolean allowNullMove)
+    {
+        pvLength[ply] = ply;
+        boolean playerToMove = (sideToMove == playerColor);
+        if (depth == 0)
+        {
+            if (playerToMove) return quiescence(ply,alpha,beta,sideToMove);
+            return -quiescence(ply,-beta,-alpha,sideToMove);
+        }
+
+        if (countNode()) return 0;
+        if (ply >= MAX_PLY-1) return ChessAI.evaluate(boardState,sideToMove);
+
+        long hashKey = boardState.getHashKey();
+        pathKeys[ply] = hashKey;
+        if ((ply > 0) && isDraw(ply,hashKey,sideToMove)) return 0;
+
+        long hashEntry = transpositionTable.probe(hashKey);
+        if ((hashEntry != 0L) && (ply > 0) && (TranspositionTable.getDepth(hashEntry) >= depth))
+        {
+            int hashScore = fromHashScore(TranspositionTable.getScore(hashEntry),ply);
+            switch (TranspositionTable.getBound(hashEntry))
+            {
+                case TranspositionTable.EXACT:
+                    return hashScore;
+                case TranspositionTable.LOWER_BOUND:
+                    alpha = Math.max(alpha,hashScore);
+                    break;
+                case TranspositionTable.UPPER_BOUND:
+                    beta = Math.min(beta,hashScore);
+                    break;
+            }
+            if (alpha >= beta) return hashScore;
+        }
+
+        int pvMove = TranspositionTable.NO_MOVE;
+        if (followPv)
+        {
+            if (ply < previousPvLength) pvMove   = previousPv[ply];
+            else                        followPv = false;
+        }
+
+        PlayerColor opponentColor = ChessRules.oppositeColor(sideToMove);
+        boolean     pvNode        = (beta - alpha > 1);
+        boolean     inCheck       = boardState.check(sideToMove);
+
+        if (ChessAI.nullMovePruning && allowNullMove && !pvNode && !inCheck && (ply > 0)
+                && (depth >= NULL_MOVE_MIN_DEPTH) && hasPieces(sideToMove)
+                && (ChessAI.evaluate(boardState,sideToMove) >= beta))
+        {
+            int reduction     = (depth > 6) ? 3 : 2;
+            long positionState = boardState.makeNullMove();
+            int score = -principalVariation(Math.max(depth-1-reduction,0),ply+1,-beta,-beta+1,opponentColor,false);
+            boardState.undoNullMove(positionState);
+            if (isStopped()) return 0;
+
+            if (score >= beta)
+            {
+                if (score >= MATE_BOUND) score = beta; // a mate found by passing proves nothing
+                if (boardState.getPhase() > NULL_MOVE_VERIFY_PHASE) return score;
+
+                int verified = principalVariation(Math.max(depth-reduction,1),ply,beta-1,beta,sideToMove,false);
+                if (isStopped()) return 0;
+                if (verified >= beta) return score;
+            }
+        }
+
+        int[] moves = moveStack[ply];
+        int   count = generateMoves(ply,sideToMove,moves);
+        if (count == 0) return terminalScore(ply,sideToMove);
+        moveOrdering.order(moves,scoreStack[ply],count,boardState,ply,pvMove,TranspositionTable.getMove(hashEntry),sideToMove);
+
+        if ((ply == 0) && (parent == null) && (ChessAI.searchThreads > 1) && (count > 1))
+            return splitRoot(depth,alpha,beta,moves,count,hashKey);
+
+        int     alphaOriginal = alpha;
+        int     best          = -INFINITY;
+        int     bestNodeMove  = PackedMove.NO_MOVE;
+
+        for (int moveNumber = 0; moveNumber < count; moveNumber++)
+        {
+            int     move  = moves[moveNumber];
+            boolean quiet = !MoveOrdering.isTactical(move,boardState);
+            boardState.makeMove(move);
+            int score;
+            if (moveNumber == 0)
+            {
+                score = -principalVariation(depth-1,ply+1,-beta,-alpha,opponentColor,true);
+            }
+            else
+            {
+                int reduction = 0;
+                if (ChessAI.lateMoveReductions && quiet && !inCheck && (depth >= LMR_MIN_DEPTH)
+                        && (moveNumber >= LMR_FULL_MOVES) && !boardState.check(opponentColor))
+                {
+                    reduction = Math.min(LMR_REDUCTIONS[Math.min(depth,MAX_PLY-1)][Math.min(moveNumber,MAX_PLY-1)],depth-2);
+                }
+
+                score = -principalVariation(depth-1-reduction,ply+1,-alpha-1,-alpha,opponentColor,true);
+                if ((score > alpha) && (reduction > 0))
+                    score = -principalVariation(depth-1,ply+1,-alpha-1,-alpha,opponentColor,true);
+                if ((score > alpha) && (score < beta))
+                    score = -principalVariation(depth-1,ply+1,-beta,-alpha,opponentColor,true);
+            }
+            boardState.unmakeMove(move);
+            followPv = false;
+            if (isStopped()) return 0;
+
+            if (score > best)
+            {
+                best         = score;
+                bestNodeMove = move;
+                updatePv(ply,move);
+            }
+
+            alpha = Math.max(alpha,score);
+            if (alpha >= beta)
+            {
+                moveOrdering.cutoff(move,boardState,ply,depth,sideToMove);
+                break;
+            }
+        }
+
+        int bound = TranspositionTable.EXACT;
+        if (best <= alphaOriginal) bound = TranspositionTable.UPPER_BOUND;
+        else if (best >= beta)     bound = TranspositionTable.LOWER_BOUND;
+        transpositionTable.store(hashKey,depth,bound,toHashScore(best,ply),bestNodeMove);
+
+        if (ply == 0) iterationBestMove = bestNodeMove;
+        return best;
+    }
+
+    /**
+     * tests if a position in the tree is drawn by rule, before it is searched<br>
+     * - repetition: positions with the same side to move are compared, back to the last
+     *   capture or pawn move (the halfmove clock), first on the line from the root, then
+     *   in the game before the root; a null move restarts the clock, so a line is never
+     *   compared across one<br>
+     * - fifty-move rule: unless the side to move is in check, and may be mated
+     * @param ply distance of the position from the root, above 0
+     * @param hashKey hash key of the position
+     * @param sideToMove color of the player to move
+     * @return true if the position scores as a draw
+     */
+    private boolean isDraw(int ply, long hashKey, PlayerColor sideToMove)
+    {
+        int halfmoveClock = boardState.getHalfmoveClock();
+        for (int distance = 2; distance <= halfmoveClock; distance += 2)
+        {
+            int index = ply - distance;
+            if (index < 0)
+            {
+                // before the root: the root is the last position of the game history
+                index += historyLength - 1;
+                if (index < 0) break;
+                if (gameHistory.getPositionKey(index) == hashKey) return true;
+            }
+            else if (pathKeys[index] == hashKey)
+            {
+                return true;
+            }
+        }
+
+        return (halfmoveClock >= ChessGameHistory.FIFTY_MOVE_PLIES) && !boardState.check(sideToMove);
+    }
+
+    // a side with only pawns (and its king) is the most likely to be in zugzwang
+    private boolean hasPieces(PlayerColor color)
+    {
+        return (boardState.getPieceBoard(color,ChessPiece.KNIGHT) | boardState.getPieceBoard(color,ChessPiece.BISHOP)
+              | boardState.getPieceBoard(color,ChessPiece.ROOK)   | boardState.getPieceBoard(color,ChessPiece.QUEEN)) != 0L;
+    }
+
+    /**
+     * scores a position in which the side to move has no valid moves
+     * @param ply distance of the position from the root
+     * @param sideToMove color of the player to move
+     * @return score for the side to move: a loss if checkmated, 0 if stalemated
+     */
+    private int terminalScore(int ply, PlayerColor sideToMove)
+    {
+        return boardState.check(sideToMove) ? -(MATE_SCORE - ply) : 0;
+    }
+
+    // mate scores are kept in the table as distances from the stored position, not the root
+    private static int toHashScore(int score, int ply)
+    {
+        if (score >= MATE_BOUND)  return score + ply;
+        if (score <= -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromHashScore(int score, int ply)
+    {
+        if (score >= MATE_BOUND)  return score - ply;
+        if (score <= -MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    // the root moves are generated once per search: every iteration and re-search copies them
+    private int generateMoves(int ply, PlayerColor sideToMove, int[] moves)
+    {
+        if ((ply > 0) || (rootMoves == null)) return MoveGenerator.generateMoves(boardState,sideToMove,moves);
+
+        System.arraycopy(rootMoves,0,moves,0,rootMoves.length);
+        return rootMoves.length;
+    }
+
+    // the bound type of a score seen from the other side
+    private static int flipBound(int bound)
+    {
+        if (bound == TranspositionTable.LOWER_BOUND) return TranspositionTable.UPPER_BOUND;
+        if (bound == TranspositionTable.UPPER_BOUND) return TranspositionTable.LOWER_BOUND;
+        return bound;
+    }
+
+    /**
+     * searches the root moves in parallel: the first move serially, to set a bound,
+     * then each remaining move as a task of the shared pool<br>
+     * - a task starts from the best alpha known when it starts, so its score is exact
+     *   only if it beats that alpha; other scores are upper bounds and never picked
+     * @param depth depth of this iteration
+     * @param alpha lower bound of the root window
+     * @param beta upper bound of the root window
+     * @param moves ordered packed valid moves of the root position
+     * @param count number of valid moves
+     * @param hashKey hash key of the root position
+     * @return score of the best root move
+     */
+    private int splitRoot(int depth, int alpha, int beta, int[] moves, int count, long hashKey)
+    {
+        int alphaOriginal = alpha;
+
+        int firstMove = moves[0];
+        boardState.makeMove(firstMove);
+        int best = searchRootChild(depth-1,alpha,beta);
+        boardState.unmakeMove(firstMove);
+        followPv = false;
+        if (isStopped()) return 0;
+
+        int bestRootMove = firstMove;
+        updatePv(0,firstMove);
+        if (best >= beta) return storeRoot(hashKey,depth,alphaOriginal,beta,best,bestRootMove);
+
+        AtomicInteger sharedAlpha = new AtomicInteger(Math.max(alpha,best));
+        List<ForkJoinTask<ChessSearch>> tasks = new ArrayList<>();
+        for (int i = 1; i < count; i++)
+        {
+            int move = moves[i];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ChessSearch worker = new ChessSearch(playerColor,transpositionTable,this,false);
+                worker.boardState     = (ChessBoardState)BoardState.copy(boardState);
+                worker.gameHistory    = gameHistory;
+                worker.historyLength  = historyLength;
+                worker.pathKeys[0]    = pathKeys[0];
+                worker.completedDepth = completedDepth;
+
+                worker.rootAlpha = sharedAlpha.get();
+                worker.boardState.makeMove(move);
+                if (ChessAI.principalVariation)
+                {
+                    worker.rootScore = worker.searchRootChild(depth-1,worker.rootAlpha,worker.rootAlpha+1);
+                    if ((worker.rootScore > worker.rootAlpha) && (worker.rootScore < beta) && !worker.isStopped())
+                        worker.rootScore = worker.searchRootChild(depth-1,worker.rootAlpha,beta);
+                }
+                else
+                {
+                    worker.rootScore = worker.alphaBeta(depth-1,1,worker.rootAlpha,beta,ChessRules.oppositeColor(playerColor));
+                }
+                worker.boardState.unmakeMove(move);
+                if (!worker.isStopped())
+                    sharedAlpha.accumulateAndGet(worker.rootScore,Math::max);
+                return worker;
+            }));
+        }
+        ChessAI.getSearchPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            ChessSearch worker = tasks.get(i).join();
+            nodes += worker.nodes;
+            if (isStopped()) continue;
+
+            if ((worker.rootScore > worker.rootAlpha) && (worker.rootScore > best))
+            {
+                best         = worker.rootScore;
+                bestRootMove = moves[i+1];
+                System.arraycopy(worker.pvTable[1],0,pvTable[1],0,worker.pvLength[1]);
+                pvLength[1] = worker.pvLength[1];
+                updatePv(0,bestRootMove);
+            }
+        }
+        if (isStopped()) return 0;
+
+        return storeRoot(hashKey,depth,alphaOriginal,beta,best,bestRootMove);
+    }
+
+    private int storeRoot(long hashKey, int depth, int alphaOriginal, int betaOriginal, int best, int bestRootMove)
+    {
+        int bound = TranspositionTable.EXACT;
+        if (best <= alphaOriginal)     bound = TranspositionTable.UPPER_BOUND;
+        else if (best >= betaOriginal) bound = TranspositionTable.LOWER_BOUND;
+        transpositionTable.store(hashKey,depth,bound,toHashScore(best,0),bestRootMove);
+
+        iterationBestMove = bestRootMove;
+        return best;
+    }
+
+    // a stop is only kept once an iteration is completed, except by a helper: the first
+    // iteration of the search, and of the threads splitting its root moves, always ends
+    private boolean isStopped()
+    {
+        if (!stopped && ((parent == null) || !parent.stopped)) return false;
+        return (completedDepth > 0) || helper;
+    }
+
+    /**
+     * moves the deadline of the search, from another thread: a search started with no time
+     * limit, on the opponent's time, is given one when the move it expected is played<br>
+     * - the threads splitting the root moves and the helpers go by this search's deadline
+     * @param deadline time at which to stop, in milliseconds as System.currentTimeMillis
+     */
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * stops the search, from another thread: it returns the best move of the last iteration
+     * completed (the first iteration is always completed)
+     */
+    public void stop()
+    {
+        stopped = true;
+        if ((parent != null) && !helper) parent.stopped = true;
+    }
+
+    /**
+     * searches captures only, until the position is quiet<br>
+     * - stand-pat: the side to move may decline every capture, so the static score
+     *   is a bound on the score of the position<br>
+     * - delta pruning: captures that can not bring the score back to the bound, even
+     *   winning the victim with a margin to spare, are not searched<br>
+     * - captures that lose material by static exchange evaluation are not searched either
+     * @param ply distance of the position from the root
+     * @param alpha lower bound of the search window
+     * @param beta upper bound of the search window
+     * @param sideToMove color of the player to move
+     * @return score of the quiet position
+     */
+    private int quiescence(int ply, int alpha, int beta, PlayerColor sideToMove)
+    {
+        pvLength[ply] = ply;
+        if (countNode()) return 0;
+
+        int standPat = ChessAI.evaluate(boardState,playerColor);
+        if (ply >= MAX_PLY-1) return standPat;
+
+        boolean maximizing = (sideToMove == playerColor);
+        if (maximizing)
+        {
+            if (standPat >= beta) return standPat;
+            alpha = Math.max(alpha,standPat);
+        }
+        else
+        {
+            if (standPat <= alpha) return standPat;
+            beta = Math.min(beta,standPat);
+        }
+
+        int[] captures = moveStack[ply];
+        int   count    = MoveGenerator.generateCaptures(boardState,sideToMove,captures);
+        moveOrdering.order(captures,scoreStack[ply],count,boardState,ply,PackedMove.NO_MOVE,PackedMove.NO_MOVE,sideToMove);
+
+        int best = standPat;
+        for (int i = 0; i < count; i++)
+        {
+            int move = captures[i];
+            int gain = captureGain(move) + DELTA_MARGIN;
+            if (maximizing ? (standPat + gain <= alpha) : (standPat - gain >= beta)) continue;
+            if (isLosingCapture(move)) continue;
+
+            boardState.makeMove(move);
+            int score = quiescence(ply+1,alpha,beta,ChessRules.oppositeColor(sideToMove));
+            boardState.unmakeMove(move);
+            if (isStopped()) return 0;
+
+            if (maximizing)
+            {
+                best  = Math.max(best,score);
+                alpha = Math.max(alpha,score);
+            }
+            else
+            {
+                best = Math.min(best,score);
+                beta = Math.min(beta,score);
+            }
+
+            if (alpha >= beta) break;
+        }
+
+        return best;
+    }
+
+    private boolean isLosingCapture(int move)
+    {
+        if (PackedMove.getKind(move) == PackedMove.PROMOTION) return false;
+        return StaticExchange.isLosing(boardState,PackedMove.getFrom(move),PackedMove.getTo(move));
+    }
+
+    private int captureGain(int move)
+    {
+        ChessPiece victim = boardState.getPiece(PackedMove.getTo(move));
+        int gain = (victim == null) ? ChessAI.getPieceValue(ChessPiece.PAWN) : ChessAI.getPieceValue(victim.getType());
+        if (PackedMove.getKind(move) == PackedMove.PROMOTION)
+            gain += ChessAI.getPieceValue(ChessPiece.QUEEN) - ChessAI.getPieceValue(ChessPiece.PAWN);
+        return gain;
+    }
+
+    /**
+     * counts a visited position, and stops the search if its time is up
+     * @return true if the search is stopped
+     */
+    private boolean countNode()
+    {
+        if (isStopped()) return true;
+
+        nodes++;
+        if (((nodes % TIME_CHECK_INTERVAL) == 0) && (completedDepth > 0)
+                && (System.currentTimeMillis() >= ((parent != null) ? parent.deadline : deadline)))
+        {
+            stop();
+            return true;
+        }
+        return false;
+    }
+
+    private void updatePv(int ply, int move)
+    {
+        pvTable[ply][ply] = move;
+        for (int next = ply+1; next < pvLength[ply+1]; next++)
+            pvTable[ply][next] = pvTable[ply+1][next];
+        pvLength[ply] = Math.max(pvLength[ply+1],ply+1);
+    }
+}
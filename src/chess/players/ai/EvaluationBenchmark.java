@@ -0,0 +1,132 @@
+package chess.players.ai;
+
+import chess.ChessBoardState;
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.PieceSquareTables;
+import chess.pieces.ChessPiece;
+import chess.pieces.PieceBishop;
+import chess.pieces.PieceKnight;
+import chess.pieces.PiecePawn;
+import chess.pieces.PieceQueen;
+import chess.pieces.PieceRook;
+import game.boardgame.BoardState;
+import game.moves.Move;
+import game.utility.Location;
+import game.utility.Properties.Direction;
+import game.utility.Properties.PlayerColor;
+import static game.utility.Properties.PlayerColor.RED;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * measures the cost of evaluating a leaf position, before and after incremental evaluation:<br>
+ * - before: every location of the board is visited (Location.allLocations), and each
+ *   piece found is classified by an instanceof chain and looked up in the tables<br>
+ * - after: ChessAI.evaluate reads the scores the board state keeps as moves are made<br>
+ * - the leaves are the positions of random games from the starting position, played
+ *   with a fixed seed; both evaluations must agree on every one of them<br>
+ * - run with: java chess.players.ai.EvaluationBenchmark [positions] [rounds]
+ * @author devang
+ */
+public class EvaluationBenchmark {
+    private static final int GAME_LENGTH = 80;
+
+    public static void main(String[] args)
+    {
+        int numPositions = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int rounds       = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+
+        List<ChessBoardState> positions = randomPositions(numPositions,new Random(1L));
+        for (ChessBoardState position : positions)
+        {
+            if (scanEvaluate(position,RED) != ChessAI.evaluate(position,RED))
+                throw new IllegalStateException("incremental evaluation differs from a full scan");
+        }
+
+        // the first rounds warm the JIT up, and are not timed
+        int warmup = Math.max(1,rounds / 10);
+        long checksum = 0L;
+        for (int round = 0; round < warmup; round++)
+            checksum += runScan(positions) + runIncremental(positions);
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) checksum += runScan(positions);
+        long scanTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) checksum += runIncremental(positions);
+        long incrementalTime = System.nanoTime() - start;
+
+        double leaves = (double)rounds * positions.size();
+        System.out.printf("positions:   %d x %d rounds (checksum %d)%n",positions.size(),rounds,checksum);
+        System.out.printf("full scan:   %8.1f ns/leaf%n",scanTime / leaves);
+        System.out.printf("incremental: %8.1f ns/leaf%n",incrementalTime / leaves);
+    }
+
+    private static long runScan(List<ChessBoardState> positions)
+    {
+        long sum = 0L;
+        for (ChessBoardState position : positions) sum += scanEvaluate(position,RED);
+        return sum;
+    }
+
+    private static long runIncremental(List<ChessBoardState> positions)
+    {
+        long sum = 0L;
+        for (ChessBoardState position : positions) sum += ChessAI.evaluate(position,RED);
+        return sum;
+    }
+
+    // the evaluation as a leaf used to compute it: a visit of every location on the board
+    private static int scanEvaluate(ChessBoardState boardState, PlayerColor playerColor)
+    {
+        int middlegame = 0;
+        int endgame    = 0;
+        int phase      = 0;
+
+        for (Location location : Location.allLocations())
+        {
+            ChessPiece piece = (ChessPiece)boardState.getPiece(location);
+            if (piece == null) continue;
+
+            int       type      = typeOf(piece);
+            int       square    = ChessBoardState.square(location);
+            Direction direction = boardState.getColorDirection(piece.getColor());
+            int       sign      = piece.getColor().equals(playerColor) ? 1 : -1;
+            middlegame += sign * PieceSquareTables.middlegame(type,square,direction);
+            endgame    += sign * PieceSquareTables.endgame(type,square,direction);
+            phase      += PieceSquareTables.phase(type);
+        }
+
+        return PieceSquareTables.taper(middlegame,endgame,phase);
+    }
+
+    private static int typeOf(ChessPiece piece)
+    {
+        if (piece instanceof PiecePawn)   return ChessPiece.PAWN;
+        if (piece instanceof PieceKnight) return ChessPiece.KNIGHT;
+        if (piece instanceof PieceBishop) return ChessPiece.BISHOP;
+        if (piece instanceof PieceRook)   return ChessPiece.ROOK;
+        if (piece instanceof PieceQueen)  return ChessPiece.QUEEN;
+        return ChessPiece.KING;
+    }
+
+    private static List<ChessBoardState> randomPositions(int count, Random random)
+    {
+        List<ChessBoardState> positions = new ArrayList<>(count);
+        while (positions.size() < count)
+        {
+            ChessBoardState boardState = Fen.create(Fen.START_POSITION);
+            for (int ply = 0; (ply < GAME_LENGTH) && (positions.size() < count); ply++)
+            {
+                List<Move> moves = MoveGenerator.generateLegalMoves(boardState,boardState.getSideToMove());
+                if (moves.isEmpty()) break;
+                moves.get(random.nextInt(moves.size())).commitMove(boardState);
+                positions.add((ChessBoardState)BoardState.copy(boardState));
+            }
+        }
+        return positions;
+    }
+}
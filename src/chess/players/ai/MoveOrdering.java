@@ -0,0 +1,154 @@
+package chess.players.ai;
+
+import chess.ChessBoardState;
+import chess.StaticExchange;
+import chess.moves.PackedMove;
+import chess.pieces.ChessPiece;
+import game.utility.Properties.PlayerColor;
+
+/**
+ * orders the moves of a position so the moves most likely to cause a cutoff are searched first:<br>
+ * - the principal-variation move of the previous iteration, then the hash move<br>
+ * - captures and promotions, most valuable victim first, least valuable attacker breaking ties (MVV-LVA)<br>
+ * - two killer moves per ply: quiet moves that recently caused a cutoff at the same ply<br>
+ * - remaining quiet moves by a butterfly history table (side, from-square, to-square),
+ *   credited with depth*depth every time the move causes a cutoff<br>
+ * - captures of a cheaper piece that lose material by static exchange evaluation, last
+ * @author devang
+ */
+class MoveOrdering {
+    private static final int PV_SCORE      = 4000000;
+    private static final int HASH_SCORE    = 3000000;
+    private static final int CAPTURE_SCORE = 2000000;
+    private static final int KILLER_SCORE  = 1000000;
+    private static final int LOSING_SCORE  = -KILLER_SCORE;
+    private static final int MAX_HISTORY   = KILLER_SCORE / 2;
+
+    private final int[][]   killers; // [ply][slot] packed moves
+    private final int[][][] history; // [color][from][to]
+
+    MoveOrdering()
+    {
+        killers = new int[ChessSearch.MAX_PLY][2];
+        history = new int[2][ChessBoardState.NUM_SQUARES][ChessBoardState.NUM_SQUARES];
+    }
+
+    /**
+     * forgets the killer moves and ages the history table, before a new search
+     */
+    void clear()
+    {
+        for (int[] plyKillers : killers)
+        {
+            plyKillers[0] = PackedMove.NO_MOVE;
+            plyKillers[1] = PackedMove.NO_MOVE;
+        }
+        for (int[][] colorHistory : history)
+            for (int[] fromHistory : colorHistory)
+                for (int to = 0; to < fromHistory.length; to++)
+                    fromHistory[to] /= 8;
+    }
+
+    /**
+     * sorts the packed moves of a position, best candidates first
+     * @param moves packed valid moves of the position, sorted in place
+     * @param scores array at least as long as the moves, for the scores of the moves
+     * @param count number of moves
+     * @param boardState state of the board of the position
+     * @param ply distance of the position from the root
+     * @param pvMove packed principal-variation move, NO_MOVE if none
+     * @param hashMove packed hash move, NO_MOVE if none
+     * @param sideToMove color of the player to move
+     */
+    void order(int[] moves, int[] scores, int count, ChessBoardState boardState, int ply, int pvMove, int hashMove, PlayerColor sideToMove)
+    {
+        for (int i = 0; i < count; i++)
+            scores[i] = score(moves[i],boardState,ply,pvMove,hashMove,sideToMove);
+
+        // insertion sort: stable, and the lists are short
+        for (int i = 1; i < count; i++)
+        {
+            int move  = moves[i];
+            int score = scores[i];
+            int j     = i - 1;
+            while ((j >= 0) && (scores[j] < score))
+            {
+                scores[j+1] = scores[j];
+                moves[j+1]  = moves[j];
+                j--;
+            }
+            scores[j+1] = score;
+            moves[j+1]  = move;
+        }
+    }
+
+    private int score(int move, ChessBoardState boardState, int ply, int pvMove, int hashMove, PlayerColor sideToMove)
+    {
+        int from = PackedMove.getFrom(move);
+        int to   = PackedMove.getTo(move);
+
+        if (move == pvMove)   return PV_SCORE;
+        if (move == hashMove) return HASH_SCORE;
+
+        if (isTactical(move,boardState))
+        {
+            ChessPiece victim   = boardState.getPiece(to);
+            int        attacker = boardState.getPiece(from).getType();
+            int victimType = (victim == null) ? ChessPiece.PAWN : victim.getType();
+            int mvvLva     = (victimType * ChessPiece.NUM_TYPES) + (ChessPiece.NUM_TYPES - 1 - attacker);
+            if (PackedMove.getKind(move) == PackedMove.PROMOTION) return CAPTURE_SCORE + mvvLva + (ChessPiece.QUEEN * ChessPiece.NUM_TYPES);
+
+            if (StaticExchange.isLosing(boardState,from,to)) return LOSING_SCORE + mvvLva;
+            return CAPTURE_SCORE + mvvLva;
+        }
+
+        if (move == killers[ply][0]) return KILLER_SCORE + 1;
+        if (move == killers[ply][1]) return KILLER_SCORE;
+
+        return history[sideToMove.ordinal()][from][to];
+    }
+
+    /**
+     * records a move that caused a cutoff: quiet moves become killers and earn history
+     * @param move the packed move that caused the cutoff
+     * @param boardState state of the board of the position, before the move
+     * @param ply distance of the position from the root
+     * @param depth remaining depth of the position
+     * @param sideToMove color of the player to move
+     */
+    void cutoff(int move, ChessBoardState boardState, int ply, int depth, PlayerColor sideToMove)
+    {
+        if (isTactical(move,boardState)) return;
+
+        int from = PackedMove.getFrom(move);
+        int to   = PackedMove.getTo(move);
+
+        if (killers[ply][0] != move)
+        {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[][] colorHistory = history[sideToMove.ordinal()];
+        colorHistory[from][to] += depth * depth;
+        if (colorHistory[from][to] > MAX_HISTORY)
+        {
+            for (int[] fromHistory : colorHistory)
+                for (int square = 0; square < fromHistory.length; square++)
+                    fromHistory[square] /= 2;
+        }
+    }
+
+    /**
+     * tests if a move changes the material on the board: a capture or a promotion
+     * @param move the packed move to test
+     * @param boardState state of the board before the move
+     * @return true if the move is a capture, an en-passant capture or a promotion
+     */
+    static boolean isTactical(int move, ChessBoardState boardState)
+    {
+        int kind = PackedMove.getKind(move);
+        return (kind == PackedMove.EN_PASSANT) || (kind == PackedMove.PROMOTION)
+            || !boardState.isEmpty(PackedMove.getTo(move));
+    }
+}
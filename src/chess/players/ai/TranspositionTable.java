@@ -0,0 +1,198 @@
+package chess.players.ai;
+
+import chess.moves.PackedMove;
+import java.util.Arrays;
+
+/**
+ * fixed-size hash table of search results, keyed by Zobrist hash keys of Chess positions<br>
+ * - each entry keeps the search depth, the bound type, the score and the best move found<br>
+ * - an entry is two longs: the data, and the key XOR-ed with the data; a probe only accepts
+ *   an entry whose two halves XOR back to the probed key, so a torn write from another
+ *   thread reads as a miss instead of a wrong result, and no locking is needed<br>
+ * - entries are grouped in buckets of two slots: the first slot keeps the deepest
+ *   result (unless it is from an older search), the second slot always takes the newest
+ * @author devang
+ */
+public class TranspositionTable {
+    // bound types: how the stored score relates to the true score of the position
+    public static final int UPPER_BOUND = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int EXACT       = 3;
+
+    public static final int NO_MOVE = PackedMove.NO_MOVE;
+
+    private static final int  ENTRY_BYTES  = 16;
+    private static final int  SLOTS        = 2;
+    private static final int  MAX_DEPTH    = 0xFF;
+    private static final int  MAX_AGE      = 0x3F;
+
+    // data layout: move [0,16) | score [16,48) | depth [48,56) | bound [56,58) | generation [58,64)
+    private static final int  SCORE_SHIFT      = 16;
+    private static final int  DEPTH_SHIFT      = 48;
+    private static final int  BOUND_SHIFT      = 56;
+    private static final int  GENERATION_SHIFT = 58;
+
+    private final long[] checks; // key ^ data
+    private final long[] data;
+    private final int    bucketMask;
+    private volatile int generation;
+
+    private TranspositionTable(int megabytes)
+    {
+        long budget  = Math.max(1L,megabytes) * 1024L * 1024L;
+        long entries = Long.highestOneBit(Math.max(SLOTS,budget / ENTRY_BYTES));
+        entries      = Math.min(entries,1L << 30);
+
+        checks     = new long[(int)entries];
+        data       = new long[(int)entries];
+        bucketMask = (int)(entries / SLOTS) - 1;
+        generation = 0;
+    }
+
+    /**
+     * creates a transposition table that fits in a memory budget<br>
+     * - the number of entries is rounded down to a power of two
+     * @param megabytes memory budget for the table, in megabytes
+     * @return newly-created empty transposition table
+     */
+    public static TranspositionTable create(int megabytes)
+    {
+        return new TranspositionTable(megabytes);
+    }
+
+    /**
+     * gets the number of entries this table can hold
+     * @return number of entries
+     */
+    public int size()
+    {
+        return data.length;
+    }
+
+    /**
+     * removes all entries from this table
+     */
+    public void clear()
+    {
+        Arrays.fill(checks,0L);
+        Arrays.fill(data,0L);
+        generation = 0;
+    }
+
+    /**
+     * marks the start of a new search, so entries from older searches are replaced first
+     */
+    public void newSearch()
+    {
+        generation = (generation + 1) & MAX_AGE;
+    }
+
+    /**
+     * looks up the entry stored for a position
+     * @param key Zobrist hash key of the position
+     * @return packed entry data, 0 if there is no entry for the key
+     */
+    public long probe(long key)
+    {
+        int index = bucketIndex(key);
+        for (int slot = index; slot < index + SLOTS; slot++)
+        {
+            long entry = data[slot];
+            if ((entry != 0L) && ((checks[slot] ^ entry) == key)) return entry;
+        }
+        return 0L;
+    }
+
+    /**
+     * stores the result of a search of a position
+     * @param key Zobrist hash key of the position
+     * @param depth remaining depth to which the position was searched
+     * @param bound one of EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score score of the search
+     * @param move best move, packed as in PackedMove, NO_MOVE if there is none
+     */
+    public void store(long key, int depth, int bound, int score, int move)
+    {
+        int  index = bucketIndex(key);
+        int  age   = generation;
+        long entry = pack(Math.min(Math.max(depth,0),MAX_DEPTH),bound,score,move,age);
+
+        // depth-preferred slot: same position, deeper search, or left over from an older search
+        long old = data[index];
+        if ((old == 0L) || ((checks[index] ^ old) == key) || (depth >= getDepth(old)) || (getGeneration(old) != age))
+        {
+            if ((move == NO_MOVE) && (old != 0L) && ((checks[index] ^ old) == key))
+                entry |= (old & 0xFFFFL);
+            write(index,key,entry);
+            return;
+        }
+
+        // always-replace slot
+        write(index + 1,key,entry);
+    }
+
+    private void write(int slot, long key, long entry)
+    {
+        data[slot]   = entry;
+        checks[slot] = key ^ entry;
+    }
+
+    private int bucketIndex(long key)
+    {
+        return ((int)(key ^ (key >>> 32)) & bucketMask) * SLOTS;
+    }
+
+    private static long pack(int depth, int bound, int score, int move, int age)
+    {
+        return (move & 0xFFFFL)
+            | ((score & 0xFFFFFFFFL) << SCORE_SHIFT)
+            | ((long)depth << DEPTH_SHIFT)
+            | ((long)bound << BOUND_SHIFT)
+            | ((long)age << GENERATION_SHIFT);
+    }
+
+    /**
+     * gets the packed best move of an entry
+     * @param entry packed entry data, from probe
+     * @return packed best move, NO_MOVE if there is none
+     */
+    public static int getMove(long entry)
+    {
+        return (int)(entry & 0xFFFFL);
+    }
+
+    /**
+     * gets the score of an entry
+     * @param entry packed entry data, from probe
+     * @return score of the stored search
+     */
+    public static int getScore(long entry)
+    {
+        return (int)(entry >>> SCORE_SHIFT);
+    }
+
+    /**
+     * gets the remaining depth to which the position of an entry was searched
+     * @param entry packed entry data, from probe
+     * @return search depth
+     */
+    public static int getDepth(long entry)
+    {
+        return (int)(entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    /**
+     * gets the bound type of an entry
+     * @param entry packed entry data, from probe
+     * @return one of EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int getBound(long entry)
+    {
+        return (int)(entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int getGeneration(long entry)
+    {
+        return (int)(entry >>> GENERATION_SHIFT) & MAX_AGE;
+    }
+}
@@ -126,4 +126,28 @@ public class BoardState {
     {
         return pieces;
     }
+
+    /**
+     * determines whether another board state has the same layout: the same kind of piece,
+     * of the same color, at every location on the board
+     * @param boardState board state to compare with this
+     * @return true if the pieces of both board states are laid out the same
+     */
+    public boolean isSameLayout(BoardState boardState)
+    {
+        for (Location location : Location.allLocations())
+        {
+            Piece piece      = getPiece(location);
+            Piece otherPiece = boardState.getPiece(location);
+            if ((piece == null) || (otherPiece == null))
+            {
+                if (piece != otherPiece) return false;
+            }
+            else if ((piece.getClass() != otherPiece.getClass()) || (piece.getColor() != otherPiece.getColor()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -1,14 +1,21 @@
 package game.moves;
 
+import game.boardgame.BoardState;
 import java.io.Serializable;
 
 /**
  * Overarching interface for all moves in games
  * - valuable in serialization when transmitting Moves over network in client-server
  *   socket communication
+ * - a committed Move keeps an undo record, so it can be taken back with undoMove:
+ *   searches can then mutate one board state in place instead of copying it per node
  * @author devang
  */
 public abstract class Move implements Serializable {
+    public abstract void commitMove(BoardState boardState);
+    
+    // not sent over the network: only meaningful for the board state it was committed to
+    private transient UndoRecord undoRecord;
     
     // meant to override for specific game-type
     public Move rotateMove()
@@ -20,4 +27,29 @@ public abstract class Move implements Serializable {
     {
         
     }
+    
+    /**
+     * starts a new undo record for this Move: called by commitMove,
+     * which then saves every location before changing it
+     * @return empty undo record for this commit
+     */
+    protected UndoRecord beginUndo()
+    {
+        if (undoRecord == null)
+            undoRecord = new UndoRecord();
+        else
+            undoRecord.clear();
+        return undoRecord;
+    }
+    
+    /**
+     * takes back the most recent commit of this Move on the board state in the argument<br>
+     * - moves must be undone in the reverse order they were committed
+     * @param boardState state of the board to which this Move was last committed
+     */
+    public void undoMove(BoardState boardState)
+    {
+        if (undoRecord != null)
+            undoRecord.restore(boardState);
+    }
 }
@@ -0,0 +1,84 @@
+package game.moves;
+
+import game.boardgame.BoardState;
+import game.boardgame.pieces.Piece;
+import game.utility.Location;
+
+/**
+ * record of the spaces that a Move changed on a board state<br>
+ * - a Move saves the piece at a location before it changes that location<br>
+ * - restoring puts every saved piece back, in reverse order of saving<br>
+ * - lets a search apply and take back moves on one board state instead of
+ *   deep-copying the board state at every node
+ * 
+ * @author devang
+ */
+public class UndoRecord {
+    private static final int INITIAL_CAPACITY = 4;
+    
+    private Location[] locations;
+    private Piece[]    pieces;
+    private int        size;
+    
+    public UndoRecord()
+    {
+        locations = new Location[INITIAL_CAPACITY];
+        pieces    = new Piece[INITIAL_CAPACITY];
+        size      = 0;
+    }
+    
+    /**
+     * saves the piece (or emptiness) at a location, before a Move changes it
+     * @param boardState state of the board about to be changed
+     * @param location location about to be changed
+     */
+    public void save(BoardState boardState, Location location)
+    {
+        if (location == null) return;
+        
+        if (size == locations.length)
+        {
+            Location[] newLocations = new Location[2*size];
+            Piece[]    newPieces    = new Piece[2*size];
+            System.arraycopy(locations,0,newLocations,0,size);
+            System.arraycopy(pieces,0,newPieces,0,size);
+            locations = newLocations;
+            pieces    = newPieces;
+        }
+        
+        locations[size] = location;
+        pieces[size]    = boardState.getPiece(location);
+        size++;
+    }
+    
+    /**
+     * restores every saved location on the board state, in reverse order of saving,
+     * and then empties this record
+     * @param boardState state of the board to restore
+     */
+    public void restore(BoardState boardState)
+    {
+        for (int i = size-1; i >= 0; i--)
+        {
+            boardState.removePiece(locations[i]);
+            if (pieces[i] != null)
+                boardState.setPiece(pieces[i],locations[i]);
+            locations[i] = null;
+            pieces[i]    = null;
+        }
+        size = 0;
+    }
+    
+    /**
+     * empties this record without changing any board state
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            locations[i] = null;
+            pieces[i]    = null;
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,130 @@
+package game.utility;
+
+import static game.utility.Properties.NUM_COLS;
+import static game.utility.Properties.NUM_ROWS;
+
+/**
+ * precomputed squares around every square of the board, so move generation can walk
+ * plain arrays instead of stepping (and bounds-checking) one Location at a time<br>
+ * - a ray is every square in one of 8 directions, ordered from nearest to the board edge<br>
+ * - a neighbour is the first square of a ray, a jump the second: the square landed on
+ *   when jumping over the neighbour (as a Checkers capture does)<br>
+ * - knight jumps are the up-to-8 squares a knight reaches<br>
+ * - the arrays returned are shared by every caller, and must not be modified
+ * @author devang
+ */
+public final class BoardGeometry {
+    public static final int LEFT       = 0;
+    public static final int RIGHT      = 1;
+    public static final int UP         = 2;
+    public static final int DOWN       = 3;
+    public static final int UP_LEFT    = 4;
+    public static final int UP_RIGHT   = 5;
+    public static final int DOWN_LEFT  = 6;
+    public static final int DOWN_RIGHT = 7;
+
+    public static final int NUM_DIRECTIONS = 8;
+
+    // column and row step of each direction, indexed as the constants above
+    private static final int[] COL_STEPS = { -1, 1,  0, 0, -1,  1, -1, 1 };
+    private static final int[] ROW_STEPS = {  0, 0, -1, 1, -1, -1,  1, 1 };
+
+    private static final int[][] KNIGHT_STEPS = { {1,2}, {2,1}, {2,-1}, {1,-2}, {-1,-2}, {-2,-1}, {-2,1}, {-1,2} };
+
+    // indexed by [col][row][direction]
+    private static final Location[][][][] RAYS       = new Location[NUM_COLS][NUM_ROWS][NUM_DIRECTIONS][];
+    private static final Location[][][]   NEIGHBOURS = new Location[NUM_COLS][NUM_ROWS][NUM_DIRECTIONS];
+    private static final Location[][][]   JUMPS      = new Location[NUM_COLS][NUM_ROWS][NUM_DIRECTIONS];
+
+    // indexed by [col][row]
+    private static final Location[][][] KNIGHT_JUMPS = new Location[NUM_COLS][NUM_ROWS][];
+
+    static
+    {
+        for (Location location : Location.allLocations())
+        {
+            int col = Location.getCol(location);
+            int row = Location.getRow(location);
+            for (int direction = 0; direction < NUM_DIRECTIONS; direction++)
+            {
+                Location[] ray = buildRay(col,row,direction);
+                RAYS[col][row][direction]       = ray;
+                NEIGHBOURS[col][row][direction] = (ray.length > 0) ? ray[0] : null;
+                JUMPS[col][row][direction]      = (ray.length > 1) ? ray[1] : null;
+            }
+            KNIGHT_JUMPS[col][row] = buildKnightJumps(col,row);
+        }
+    }
+
+    private BoardGeometry() { }
+
+    /**
+     * gets the squares in one direction from a square, up to the edge of the board
+     * @param location square to start from (not included)
+     * @param direction one of LEFT, RIGHT, UP, DOWN, UP_LEFT, UP_RIGHT, DOWN_LEFT or DOWN_RIGHT
+     * @return shared array of squares, nearest first; empty at the edge of the board
+     */
+    public static Location[] getRay(Location location, int direction)
+    {
+        return RAYS[Location.getCol(location)][Location.getRow(location)][direction];
+    }
+
+    /**
+     * gets the square next to a square, in one direction
+     * @param location square to start from
+     * @param direction one of LEFT, RIGHT, UP, DOWN, UP_LEFT, UP_RIGHT, DOWN_LEFT or DOWN_RIGHT
+     * @return neighbouring square, or null off the edge of the board
+     */
+    public static Location getNeighbour(Location location, int direction)
+    {
+        return NEIGHBOURS[Location.getCol(location)][Location.getRow(location)][direction];
+    }
+
+    /**
+     * gets the square two steps from a square in one direction: where a jump over the neighbour lands
+     * @param location square to jump from
+     * @param direction one of LEFT, RIGHT, UP, DOWN, UP_LEFT, UP_RIGHT, DOWN_LEFT or DOWN_RIGHT
+     * @return square landed on, or null off the edge of the board
+     */
+    public static Location getJump(Location location, int direction)
+    {
+        return JUMPS[Location.getCol(location)][Location.getRow(location)][direction];
+    }
+
+    /**
+     * gets the squares a knight reaches from a square
+     * @param location square of the knight
+     * @return shared array of the squares on the board
+     */
+    public static Location[] getKnightJumps(Location location)
+    {
+        return KNIGHT_JUMPS[Location.getCol(location)][Location.getRow(location)];
+    }
+
+    private static Location[] buildRay(int col, int row, int direction)
+    {
+        int length = 0;
+        while (Location.isValid(col + (length+1)*COL_STEPS[direction],row + (length+1)*ROW_STEPS[direction]))
+            length++;
+
+        Location[] ray = new Location[length];
+        for (int i = 0; i < length; i++)
+            ray[i] = Location.of(col + (i+1)*COL_STEPS[direction],row + (i+1)*ROW_STEPS[direction]);
+        return ray;
+    }
+
+    private static Location[] buildKnightJumps(int col, int row)
+    {
+        int length = 0;
+        Location[] jumps = new Location[KNIGHT_STEPS.length];
+        for (int[] step : KNIGHT_STEPS)
+        {
+            Location jump = Location.of(col + step[0],row + step[1]);
+            if (jump != null) jumps[length++] = jump;
+        }
+
+        Location[] knightJumps = new Location[length];
+        System.arraycopy(jumps,0,knightJumps,0,length);
+        return knightJumps;
+    }
+}
@@ -3,35 +3,62 @@ package game.utility;
 import static game.utility.Properties.NUM_COLS;
 import static game.utility.Properties.NUM_ROWS;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
- *
+ * a square on the board, by column (x) and row (y)<br>
+ * - every square has exactly one Location: of, at, copy and the neighbour helpers
+ *   return the shared instance from a static table, and never allocate<br>
+ * - so two Locations are equal only if they are the same object; a Location read
+ *   from a stream (the network) is swapped for the shared instance by readResolve
  * @author devang
  */
 public class Location implements Serializable {
     private final int x;
     private final int y;
     
+    // indexed by [col][row]
+    private static final Location[][] LOCATIONS = new Location[NUM_COLS][NUM_ROWS];
+    
+    // all squares, column by column
+    private static final List<Location> ALL_LOCATIONS;
+    
+    static
+    {
+        Location[] all = new Location[NUM_COLS*NUM_ROWS];
+        for (int c = 0; c < NUM_COLS; c++)
+        {
+            for (int r = 0; r < NUM_ROWS; r++)
+            {
+                LOCATIONS[c][r]     = new Location(c,r);
+                all[c*NUM_ROWS + r] = LOCATIONS[c][r];
+            }
+        }
+        ALL_LOCATIONS = Collections.unmodifiableList(Arrays.asList(all));
+    }
+    
     private Location(int col, int row)
     {
         x = col;
         y = row;
     }
     
+    private Object readResolve()
+    {
+        return LOCATIONS[x][y];
+    }
+    
     public static Location rotate(Location location)
     {
-        return new Location(NUM_COLS-1-location.x,NUM_ROWS-1-location.y);
+        return LOCATIONS[NUM_COLS-1-location.x][NUM_ROWS-1-location.y];
     }
     
     @Override
     public boolean equals(Object obj) {
 
-        if (obj == this) return true;
-        if (!(obj instanceof Location)) return false;
-        Location location = (Location)obj;
-        return ((location.x == x) && (location.y == y));
+        return (obj == this);
     }
 
     @Override
@@ -66,10 +93,7 @@ public class Location implements Serializable {
 
     public static Location copy(Location location)
     {
-        if (location == null) return null;
-        int col = location.x;
-        int row = location.y;
-        return Location.of(col,row);
+        return location;
     }
     
     public static Location at(int col,int row)
@@ -89,7 +113,7 @@ public class Location implements Serializable {
             return null;
         }
         
-        return new Location(col,row);
+        return LOCATIONS[col][row];
     }
     
     public static boolean isValid(int col,int row)
@@ -257,17 +281,12 @@ public class Location implements Serializable {
         return Location.of(location.x+2,location.y);
     }
     
+    /**
+     * gets every square of the board, column by column
+     * @return shared list of all Locations; it can not be modified
+     */
     public static List<Location> allLocations()
     {
-        List<Location> locationsList = new ArrayList<>();
-        for (int c = 0; c < NUM_COLS; c++)
-        {
-            for (int r = 0; r < NUM_ROWS; r++)
-            {
-                Location location = Location.of(c,r);
-                if (location != null) locationsList.add(location);
-            }
-        }
-        return locationsList;
+        return ALL_LOCATIONS;
     }
 }
@@ -2,13 +2,12 @@ package othello.moves;
 
 import game.boardgame.BoardState;
 import game.moves.Move;
+import game.moves.UndoRecord;
+import game.utility.BoardGeometry;
 import game.utility.Location;
 import game.utility.Properties;
 import game.utility.Properties.PlayerColor;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.BiFunction;
 import othello.pieces.OthelloPiece;
 
 /**
@@ -42,52 +41,55 @@ public class OthelloMove extends Move implements Serializable {
         return new OthelloMove(color,Location.copy(location));
     }
     
-    private Location nextLocation(Location start, int i, BiFunction<Location,Integer,Location> locationMethod) {
-        Location newLocation = locationMethod.apply(start, i);
-        return newLocation;
+    /**
+     * counts the opponent's pieces along a ray that a placement would flip<br>
+     * - they must be an unbroken line from the placed piece, closed by a piece of its own color
+     * @param ray squares outward from the placed piece, as from BoardGeometry.getRay
+     * @param boardState state of the board to look at
+     * @param pieceColor color of the placed piece
+     * @return number of pieces flipped along the ray, 0 if not closed
+     */
+    private static int countFlips(Location[] ray, BoardState boardState, PlayerColor pieceColor)
+    {
+        PlayerColor opponentColor = Properties.oppositeColor(pieceColor);
+        
+        int next = 0;
+        while ((next < ray.length) && !boardState.isEmpty(ray[next]) && (boardState.getPiece(ray[next]).getColor()==opponentColor))
+        {
+            next++;
+        }
+        if ((next < ray.length) && !boardState.isEmpty(ray[next]) && (boardState.getPiece(ray[next]).getColor()==pieceColor))
+        {
+            return next;
+        }
+        return 0;
     }
     
     /**
-     * commits this Move to the board state in the argument
+     * commits this Move to the board state in the argument<br>
+     * - saves the placed and flipped locations, so the Move can be undone
      * @param boardState state of a board of a game against to which to apply this move
      */
+    @Override
     public void commitMove(BoardState boardState)
     {
+        UndoRecord undoRecord = beginUndo();
         if (!boardState.isEmpty(location)) return;
         
         PlayerColor pieceColor = color;
-        PlayerColor opponentColor = Properties.oppositeColor(color);
         
+        undoRecord.save(boardState,location);
         boardState.setPiece(OthelloPiece.create(pieceColor),location);
 
-        List<BiFunction<Location,Integer,Location>> locationDirections;
-        locationDirections = new ArrayList<>();
-        locationDirections.add(Location::leftX);
-        locationDirections.add(Location::rightX);
-        locationDirections.add(Location::upX);
-        locationDirections.add(Location::downX);
-        locationDirections.add(Location::upLeftX);
-        locationDirections.add(Location::upRightX);
-        locationDirections.add(Location::downLeftX);
-        locationDirections.add(Location::downRightX);
-
-        for (BiFunction<Location,Integer,Location> function : locationDirections)
+        for (int direction = 0; direction < BoardGeometry.NUM_DIRECTIONS; direction++)
         {
-            int next = 1;
-            Location startLocation = Location.copy(location);
-            Location nextLocation = nextLocation(startLocation,next,function);
-            while ((nextLocation != null ) && !boardState.isEmpty(nextLocation) && (boardState.getPiece(nextLocation).getColor()==opponentColor))
-            {
-                nextLocation = nextLocation(startLocation,next++,function);
-            }
-            if ((nextLocation != null) && !boardState.isEmpty(nextLocation) && boardState.getPiece(nextLocation).getColor()==pieceColor)
+            Location[] ray = BoardGeometry.getRay(location,direction);
+            int numFlips = countFlips(ray,boardState,pieceColor);
+            for (int n = 0; n < numFlips; n++)
             {
-                for (int n = 1; n < next; n++)
-                {
-                    Location intLocation = nextLocation(startLocation,n,function);
-                    boardState.removePiece(intLocation);
-                    boardState.setPiece(OthelloPiece.create(pieceColor),intLocation);
-                }
+                undoRecord.save(boardState,ray[n]);
+                boardState.removePiece(ray[n]);
+                boardState.setPiece(OthelloPiece.create(pieceColor),ray[n]);
             }
         }
     }
@@ -103,32 +105,10 @@ public class OthelloMove extends Move implements Serializable {
         
         int numMoveDirections = 0;
         PlayerColor pieceColor = color;
-        PlayerColor opponentColor = Properties.oppositeColor(color);
         
-        List<BiFunction<Location,Integer,Location>> locationDirections;
-        locationDirections = new ArrayList<>();
-        locationDirections.add(Location::leftX);
-        locationDirections.add(Location::rightX);
-        locationDirections.add(Location::upX);
-        locationDirections.add(Location::downX);
-        locationDirections.add(Location::upLeftX);
-        locationDirections.add(Location::upRightX);
-        locationDirections.add(Location::downLeftX);
-        locationDirections.add(Location::downRightX);
-
-        for (BiFunction<Location,Integer,Location> function : locationDirections)
+        for (int direction = 0; direction < BoardGeometry.NUM_DIRECTIONS; direction++)
         {
-            int next = 1;
-            Location startLocation = Location.copy(location);
-            Location nextLocation = nextLocation(startLocation,next,function);
-            while ((nextLocation != null ) && !boardState.isEmpty(nextLocation) && (boardState.getPiece(nextLocation).getColor()==opponentColor))
-            {
-                nextLocation = nextLocation(startLocation,next++,function);
-            }
-            if ((nextLocation != null) && !boardState.isEmpty(nextLocation) && boardState.getPiece(nextLocation).getColor()==pieceColor)
-            {
-                if (next > 1) numMoveDirections++;
-            }
+            if (countFlips(BoardGeometry.getRay(location,direction),boardState,pieceColor) > 0) numMoveDirections++;
         }
         
         return (numMoveDirections > 0);
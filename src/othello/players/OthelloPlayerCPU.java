@@ -1,6 +1,7 @@
 package othello.players;
 
 import game.Game;
+import game.boardgame.BoardState;
 import game.boardgame.players.BoardGamePlayerCPU;
 import game.moves.Move;
 import game.utility.Properties.PlayerColor;
@@ -12,10 +13,18 @@ import othello.players.ai.OthelloAI;
 /**
  * Inherits from a PlayerCPU, a Board Game Player CPU to provide same
  * interface for a phantom AI player
- * and same interface across any game: Checkers, Chess, Othello, Poker, Chinese-Checkers, etc.
+ * and same interface across any game: Checkers, Chess, Othello, Poker, Chinese-Checkers, etc.<br>
+ * - with OthelloAI.ponder, it searches on the opponent's time: after its move, the position
+ *   after the reply its search expects is searched; if the opponent makes that reply (a ponder
+ *   hit) the move found is committed with little or no wait, otherwise (a ponder miss) the
+ *   search is aborted and the position is searched as before
  * @author devang
  */
 public class OthelloPlayerCPU extends BoardGamePlayerCPU {
+    
+    private OthelloAI  othelloAI;        // search of the last move, or the ponder search
+    private Thread     ponderThread;     // thread of the ponder search, null if not pondering
+    private BoardState ponderBoardState; // position pondered
         
     private OthelloPlayerCPU(Game game, PlayerColor color)
     {
@@ -38,13 +47,13 @@ public class OthelloPlayerCPU extends BoardGamePlayerCPU {
      * and indicates it is this Phantom AI's turn to Move
      * @param move Move that is made by the Human Player on the current game-state
      */
-    public void persistMove(Move move)
+    public synchronized void persistMove(Move move)
     {
         String loggerMsg = "human persist move: AI makes next move";
         Logger.getLogger(OthelloPlayerCPU.class.getName()).log(Level.FINE,loggerMsg);
         super.persistMove(move);
 
-        evaluateNextMove();
+        if (!stopPondering(true)) evaluateNextMove();
     }
     
     /**
@@ -58,14 +67,24 @@ public class OthelloPlayerCPU extends BoardGamePlayerCPU {
         super.commitMove(move);
     }
     
+    /**
+     * stops pondering when the game ends
+     */
+    @Override
+    public synchronized void terminate()
+    {
+        stopPondering(false);
+        super.terminate();
+    }
+    
     public void evaluateNextMove()
     {
-        OthelloAI othelloAI = new OthelloAI(this,((OthelloGame)game).getBoardState());
+        othelloAI = new OthelloAI(this,((OthelloGame)game).getBoardState());
         Thread evaluateMoveThread = new Thread(othelloAI);
         evaluateMoveThread.start();
     }
     
-    public Move commitNextMove(Move move)
+    public synchronized Move commitNextMove(Move move)
     {
         if (move == null)
         {
@@ -74,7 +93,61 @@ public class OthelloPlayerCPU extends BoardGamePlayerCPU {
         else
         {
             commitMove(move);
+            startPondering();
         }
         return move;
     }
+    
+    /**
+     * starts searching, on the opponent's time, the position after the reply the last
+     * search expects, on a copy of the board; a ponder search still running is aborted first
+     */
+    private void startPondering()
+    {
+        stopPondering(false);
+        
+        OthelloGame othelloGame = (OthelloGame)game;
+        Move reply = (othelloAI != null) ? othelloAI.getExpectedReply() : null;
+        if (!OthelloAI.ponder || (reply == null) || othelloGame.checkGameOver()) return;
+        
+        ponderBoardState = BoardState.copy(othelloGame.getBoardState());
+        reply.commitMove(ponderBoardState);
+        
+        othelloAI = new OthelloAI(this,ponderBoardState,true);
+        ponderThread = new Thread(othelloAI);
+        ponderThread.start();
+    }
+    
+    /**
+     * stops searching on the opponent's time: on a ponder hit, the board is laid out as
+     * the position pondered, and the move found is committed; otherwise the search is
+     * aborted, and its thread joined
+     * @param opponentMoved true if the opponent has moved, and a ponder hit can be committed
+     * @return true on a ponder hit
+     */
+    private boolean stopPondering(boolean opponentMoved)
+    {
+        if (ponderThread == null) return false;
+        
+        boolean hit = opponentMoved && ponderBoardState.isSameLayout(((OthelloGame)game).getBoardState());
+        if (hit)
+        {
+            othelloAI.ponderHit();
+        }
+        else
+        {
+            othelloAI.abort();
+            try {
+                ponderThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ponderThread     = null;
+        ponderBoardState = null;
+        
+        String loggerMsg = hit ? "ponder hit" : "ponder miss";
+        Logger.getLogger(OthelloPlayerCPU.class.getName()).log(Level.FINE,loggerMsg);
+        return hit;
+    }
 }
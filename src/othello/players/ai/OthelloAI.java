@@ -12,12 +12,17 @@ import othello.pieces.OthelloPiece;
 import othello.players.OthelloPlayerCPU;
 
 /**
- *
+ * fixed-depth alpha-beta search for an Othello CPU player, run on its own thread<br>
+ * - the move found is committed by the player when the search ends<br>
+ * - pondering: a search started on the opponent's time, from the position after the
+ *   reply expected, keeps its move until the player learns the opponent's actual move;
+ *   then it is committed on a ponder hit, or the search is aborted on a miss
  * @author devang
  */
 public class OthelloAI extends Thread {
     public static int maxDepth = 7; // does this work differently for even,odd integers?
     public static int maxTime = 10000;
+    public static boolean ponder = true; // search the position after the expected reply on the opponent's time
     
     public static int[][] weights = {{ 4,-3, 2, 2, 2, 2,-3, 4},
                                      {-3,-4,-1,-1,-1,-1,-4,-3},
@@ -32,18 +37,76 @@ public class OthelloAI extends Thread {
     private PlayerColor      playerCPUColor;
     private BoardState       currentBoardState;
     
+    private Move             expectedReply; // opponent's best reply to the move found, null if none
+    private boolean          pondering;     // the move found waits for ponderHit
+    private boolean          finished;
+    private Move             foundMove;
+    private volatile boolean aborted;
+    
     public OthelloAI(OthelloPlayerCPU player, BoardState boardState)
+    {
+        this(player,boardState,false);
+    }
+    
+    /**
+     * constructor for a search of a board state
+     * @param player player for which to search, and which commits the move found
+     * @param boardState state of the board from which to search: it is not modified
+     * @param pondering true if searching on the opponent's time, so the move found waits for ponderHit
+     */
+    public OthelloAI(OthelloPlayerCPU player, BoardState boardState, boolean pondering)
     {
         othelloPlayerCPU = player;
         playerCPUColor = player.getColor();
         currentBoardState = boardState;
+        this.pondering = pondering;
     }
     
     public void run()
     {
         Move move = evaluateBestMove(currentBoardState);
+        if (aborted) return;
+        
+        synchronized (this)
+        {
+            foundMove = move;
+            finished  = true;
+            if (pondering) return;
+        }
         othelloPlayerCPU.commitNextMove(move);
     }
+    
+    /**
+     * called on a ponder hit: the opponent made the move expected, so the move found is
+     * committed, now from a new thread if the search has finished, otherwise when it does
+     */
+    public void ponderHit()
+    {
+        synchronized (this)
+        {
+            pondering = false;
+            if (!finished) return;
+        }
+        new Thread(() -> othelloPlayerCPU.commitNextMove(foundMove)).start();
+    }
+    
+    /**
+     * called on a ponder miss, or when the game ends: the search returns from the
+     * position it is at, and nothing is committed
+     */
+    public void abort()
+    {
+        aborted = true;
+    }
+    
+    /**
+     * gets the opponent's reply to the move found that the search expects
+     * @return best reply found, null if the search has not finished or there is none
+     */
+    public Move getExpectedReply()
+    {
+        return expectedReply;
+    }
 
     private int evaluateScore(BoardState boardState)
     {
@@ -53,16 +116,24 @@ public class OthelloAI extends Thread {
     public class MoveScore {
         public Move move;
         public int score;
+        public Move reply; // best move in the position after move
         
         public MoveScore(Move move, int score)
+        {
+            this(move,score,null);
+        }
+        
+        public MoveScore(Move move, int score, Move reply)
         {
             this.move  = move;
             this.score = score;
+            this.reply = reply;
         }
     }
     
     private MoveScore alphaBeta(int depth, int alpha, int beta, PlayerColor playerColor, BoardState boardState)
     {
+        if (aborted) return new MoveScore(null,0);
         if (depth == 0) return new MoveScore(null,evaluateScore(boardState));
         
         List<Move> validMoves = getValidMoves(boardState,playerColor);
@@ -79,58 +150,69 @@ public class OthelloAI extends Thread {
         {
             int bestScore = Integer.MIN_VALUE;
             Move bestMove = null;
+            Move bestReply = null;
             
             for (Move move : validMoves)
             {
-                BoardState tempBoardState = (BoardState)BoardState.copy(boardState);
-                ((OthelloMove)move).commitMove(tempBoardState);
-                
-                MoveScore moveScorePair = alphaBeta(depth-1,alpha,beta,Properties.oppositeColor(playerColor),tempBoardState);
+                move.commitMove(boardState);
+                MoveScore moveScorePair = alphaBeta(depth-1,alpha,beta,Properties.oppositeColor(playerColor),boardState);
+                move.undoMove(boardState);
                 int score = moveScorePair.score;
                 
                 if (score >= bestScore)
                 {
                     bestScore = score;
                     bestMove  = move;
+                    bestReply = moveScorePair.move;
                 }
                 alpha = Math.max(alpha,score);
                 //alpha = Math.max(alpha,bestScore);
                 
                 if (alpha >= beta) break;
             }
-            return new MoveScore(bestMove,bestScore);
+            return new MoveScore(bestMove,bestScore,bestReply);
         }
         // minimizing
         else //playerColor == Properties.oppositeColor(this.getColor())
         {
             int bestScore = Integer.MAX_VALUE;
             Move bestMove = null;
+            Move bestReply = null;
             
             for (Move move : validMoves)
             {
-                BoardState tempBoardState = (BoardState)BoardState.copy(boardState);
-                ((OthelloMove)move).commitMove(tempBoardState);
-                
-                MoveScore moveScorePair = alphaBeta(depth-1,alpha,beta,Properties.oppositeColor(playerColor),tempBoardState);
+                move.commitMove(boardState);
+                MoveScore moveScorePair = alphaBeta(depth-1,alpha,beta,Properties.oppositeColor(playerColor),boardState);
+                move.undoMove(boardState);
                 int score = moveScorePair.score;
                 
                 if (score <= bestScore)
                 {
                     bestScore = score;
                     bestMove  = move;
+                    bestReply = moveScorePair.move;
                 }
                 beta = Math.min(beta,score);
                 //beta = Math.min(beta,bestScore);
                 
                 if (alpha >= beta) break;
             }
-            return new MoveScore(bestMove,bestScore);
+            return new MoveScore(bestMove,bestScore,bestReply);
         }
     }
     
+    /**
+     * searches for the best move from a board state<br>
+     * - the search commits and undoes moves on one private copy of the board,
+     *   so the official board state is never touched from this thread
+     * @param boardState state of the board from which to search
+     * @return best move found, null if there are no valid moves
+     */
     public Move evaluateBestMove(BoardState boardState)
     {
-        MoveScore moveScorePair = alphaBeta(maxDepth,Integer.MIN_VALUE,Integer.MAX_VALUE,playerCPUColor,boardState);
+        BoardState searchBoardState = BoardState.copy(boardState);
+        MoveScore moveScorePair = alphaBeta(maxDepth,Integer.MIN_VALUE,Integer.MAX_VALUE,playerCPUColor,searchBoardState);
+        expectedReply = moveScorePair.reply;
         return moveScorePair.move;
     }
         
@@ -140,7 +222,7 @@ public class OthelloAI extends Thread {
         
         for (Location location : Location.allLocations())
         {
-            Move move = new OthelloMove(playerCPUColor,location);
+            Move move = new OthelloMove(playerColor,location);
             if (((OthelloMove)move).validateMove(boardState))
                 validMoves.add(move);
         }